@@ -0,0 +1,70 @@
+package at.codecrafters.moviesInfoService.benchmark;
+
+import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.domain.MovieInfoEvent;
+import at.codecrafters.moviesInfoService.stream.MovieInfoStreamConfig;
+import at.codecrafters.moviesInfoService.stream.ReplayBuffer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What MoviesInfoController pays per change: emitting the event into the replay buffer as configured by
+ * MovieInfoStreamConfig, including the size estimate and eviction of the full window, and the push to live subscribers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MovieInfoEventEmitBenchmark {
+
+    @Param({"0", "1", "10"})
+    public int subscribers;
+
+    private ReplayBuffer<MovieInfoEvent> buffer;
+
+    private final List<Disposable> subscriptions = new ArrayList<>();
+
+    private final MovieInfo movieInfo = new MovieInfo("abc", "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+    @Setup
+    public void setUp() {
+        buffer = new MovieInfoStreamConfig().movieInfoEventBuffer(1000, Duration.ofHours(1), DataSize.ofMegabytes(1), 1000,
+                Jackson2ObjectMapperBuilder.json().build(), new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.add(buffer.stream(Long.MAX_VALUE).subscribe());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        subscriptions.forEach(Disposable::dispose);
+    }
+
+    @Benchmark
+    public long emitUpdated() {
+        return buffer.emit(MovieInfoEvent.updated(movieInfo));
+    }
+}
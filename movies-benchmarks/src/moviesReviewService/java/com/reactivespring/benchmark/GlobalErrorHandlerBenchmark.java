@@ -0,0 +1,51 @@
+package com.reactivespring.benchmark;
+
+import com.reactivespring.exception.ReviewDataException;
+import com.reactivespring.exception.ReviewNotFoundException;
+import com.reactivespring.exceptionHandler.GlobalErrorHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.concurrent.TimeUnit;
+
+// every operation includes creating the mock exchange the error is rendered into
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GlobalErrorHandlerBenchmark {
+
+    private final GlobalErrorHandler globalErrorHandler = new GlobalErrorHandler();
+
+    private final ReviewDataException reviewDataException = new ReviewDataException("rating.movieInfoId: must not be null");
+
+    private final ReviewNotFoundException reviewNotFoundException = new ReviewNotFoundException("Review not found for the given Review id abc");
+
+    @Benchmark
+    public ServerWebExchange badRequest() {
+        return render(reviewDataException);
+    }
+
+    @Benchmark
+    public ServerWebExchange notFound() {
+        return render(reviewNotFoundException);
+    }
+
+    private ServerWebExchange render(Throwable ex) {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/reviews"));
+        globalErrorHandler.handle(exchange, ex).block();
+        return exchange;
+    }
+}
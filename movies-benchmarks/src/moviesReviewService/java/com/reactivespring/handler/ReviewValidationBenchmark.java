@@ -0,0 +1,55 @@
+package com.reactivespring.handler;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.exception.ReviewDataException;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// in the handler package, validate is package-private
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReviewValidationBenchmark {
+
+    private ReviewHandler reviewHandler;
+
+    private final Review validReview = new Review(null, 1L, "Awesome Movie", 9.0);
+
+    private final Review invalidReview = new Review(null, null, "Awesome Movie", -9.0);
+
+    @Setup
+    public void setUp() {
+        reviewHandler = new ReviewHandler(null, null, null, null, null);
+        ReflectionTestUtils.setField(reviewHandler, "validator", Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Benchmark
+    public void validReview() {
+        reviewHandler.validate(validReview);
+    }
+
+    @Benchmark
+    public ReviewDataException invalidReview() {
+        try {
+            reviewHandler.validate(invalidReview);
+            throw new IllegalStateException("review should have been rejected");
+        } catch (ReviewDataException ex) {
+            return ex;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.reactivespring.benchmark;
+
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewsRestClient;
+import com.reactivespring.coalesce.SingleFlight;
+import com.reactivespring.controller.MoviesController;
+import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import com.reactivespring.hedge.HedgePolicy;
+import com.reactivespring.hedge.HedgeProperties;
+import com.reactivespring.retry.RetryPolicy;
+import com.reactivespring.retry.RetryProperties;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * The aggregation of GET /v1/movies/{id} without network: both clients answer from memory,
+ * so the numbers are the cost of the reactive pipeline (zip, reviews policy, cache lookup) itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MoviesControllerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    // 0s: no timeout operator on the reviews call
+    @Param({"0s", "1s"})
+    public String reviewsTimeout;
+
+    private MoviesController moviesController;
+
+    @Setup
+    public void setUp() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var movieInfo = new MovieInfo("1", "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+        var reviews = IntStream.range(0, 10)
+                .mapToObj(i -> new Review(String.valueOf(i), 1L, "Awesome Movie", 9.0))
+                .toList();
+
+        var moviesInfoRestClient = new MoviesInfoRestClient(WebClient.create(), WebClient.create(),
+                new RetryPolicy("movieInfo", new RetryProperties.Policy(), meterRegistry, ObservationRegistry.NOOP),
+                new HedgePolicy("movieInfo", new HedgeProperties.Policy(), meterRegistry),
+                new SingleFlight<>("movieInfo", true, meterRegistry),
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults()) {
+            @Override
+            public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+                return Mono.just(movieInfo);
+            }
+        };
+        var reviewsRestClient = new ReviewsRestClient(WebClient.create(),
+                new RetryPolicy("reviews", new RetryProperties.Policy(), meterRegistry, ObservationRegistry.NOOP),
+                new HedgePolicy("reviews", new HedgeProperties.Policy(), meterRegistry),
+                new SingleFlight<>("reviews", true, meterRegistry),
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults()) {
+            @Override
+            public Flux<Review> retrieveReviews(String movieId) {
+                return Flux.fromIterable(reviews);
+            }
+        };
+        var movieInfoCache = new MovieInfoCache(moviesInfoRestClient, cached, 10_000, Duration.ofHours(1),
+                new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+
+        moviesController = new MoviesController(moviesInfoRestClient, reviewsRestClient, movieInfoCache);
+        ReflectionTestUtils.setField(moviesController, "reviewsTimeout", Duration.parse("PT" + reviewsTimeout.toUpperCase()));
+        ReflectionTestUtils.setField(moviesController, "reviewsOptional", false);
+        ReflectionTestUtils.setField(moviesController, "defaultTopReviews", 3);
+        ReflectionTestUtils.setField(moviesController, "maxTopReviews", 20);
+        ReflectionTestUtils.setField(moviesController, "maxBatchSize", 100);
+    }
+
+    @Benchmark
+    public Movie retrieveMovieById() {
+        return moviesController.retrieveMovieById("1").block();
+    }
+}
@@ -0,0 +1,79 @@
+package com.reactivespring.benchmark;
+
+import com.reactivespring.retry.RetryPolicy;
+import com.reactivespring.retry.RetryProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-attempt observation of {@link RetryPolicy} on a downstream call that succeeds at once:
+ * without tracing, with a span that is created but not sampled and with a sampled span handed to an exporter
+ * that drops it, so only the instrumentation itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TracingOverheadBenchmark {
+
+    @Param({"off", "unsampled", "sampled"})
+    public String tracing;
+
+    private SdkTracerProvider tracerProvider;
+
+    private RetryPolicy retryPolicy;
+
+    private final Mono<String> response = Mono.just("movieInfo");
+
+    @Setup
+    public void setUp() {
+        var observationRegistry = ObservationRegistry.NOOP;
+        if (!tracing.equals("off")) {
+            tracerProvider = SdkTracerProvider.builder()
+                    .setSampler(tracing.equals("sampled") ? Sampler.alwaysOn() : Sampler.alwaysOff())
+                    .addSpanProcessor(SimpleSpanProcessor.create(SpanExporter.composite()))
+                    .build();
+            var tracer = new OtelTracer(tracerProvider.get("benchmark"), new OtelCurrentTraceContext(), event -> { });
+            observationRegistry = ObservationRegistry.create();
+            observationRegistry.observationConfig().observationHandler(new DefaultTracingObservationHandler(tracer));
+        }
+        retryPolicy = new RetryPolicy("movieInfo", new RetryProperties.Policy(), new SimpleMeterRegistry(),
+                observationRegistry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (tracerProvider != null) {
+            tracerProvider.close();
+        }
+    }
+
+    @Benchmark
+    public String call() {
+        return retryPolicy.apply(response, IllegalStateException.class, signal -> signal.failure()).block();
+    }
+}
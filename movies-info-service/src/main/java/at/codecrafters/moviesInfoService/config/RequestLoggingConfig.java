@@ -0,0 +1,19 @@
+package at.codecrafters.moviesInfoService.config;
+
+import at.codecrafters.moviesInfoService.logging.RequestLoggingProperties;
+import at.codecrafters.moviesInfoService.logging.SampledRequestLoggingFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RequestLoggingProperties.class)
+public class RequestLoggingConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "request-logging", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SampledRequestLoggingFilter sampledRequestLoggingFilter(RequestLoggingProperties properties) {
+        return new SampledRequestLoggingFilter(properties);
+    }
+}
@@ -0,0 +1,34 @@
+package at.codecrafters.moviesInfoService.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.observability.ContextProviderFactory;
+import org.springframework.data.mongodb.observability.MongoObservationCommandListener;
+
+/**
+ * Spans are exported by every {@link SpanExporter} bean. OTLP is configured by Spring Boot as soon as
+ * {@code management.otlp.tracing.endpoint} is set, the logging exporter is meant for local use without a collector.
+ */
+@Configuration
+public class TracingConfig {
+
+    // one span per Mongo command, the context provider picks the parent observation up from the Reactor context
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoObservationCustomizer(ObjectProvider<ObservationRegistry> observationRegistry) {
+        return builder -> observationRegistry.ifAvailable(registry -> builder
+                .contextProvider(ContextProviderFactory.create(registry))
+                .addCommandListener(new MongoObservationCommandListener(registry)));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tracing.exporter.logging.enabled", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+}
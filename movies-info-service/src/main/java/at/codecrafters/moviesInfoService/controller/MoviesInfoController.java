@@ -1,15 +1,27 @@
 package at.codecrafters.moviesInfoService.controller;
 
 import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.domain.MovieInfoEvent;
+import at.codecrafters.moviesInfoService.domain.MovieInfoIngestResult;
+import at.codecrafters.moviesInfoService.logging.SignalTracing;
 import at.codecrafters.moviesInfoService.service.MovieInfoService;
+import at.codecrafters.moviesInfoService.stream.ReplayBuffer;
+import at.codecrafters.moviesInfoService.util.PageCursor;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
 
 @RestController
 @RequestMapping("/v1/movieinfos")
@@ -17,33 +29,96 @@ public class MoviesInfoController {
 
     private final MovieInfoService movieInfoService;
 
-    private Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().all();
+    private final ReplayBuffer<MovieInfoEvent> movieInfoEventBuffer;
+
+    @Value("${movieInfo.pagination.defaultPageSize}")
+    private int defaultPageSize;
+
+    @Value("${movieInfo.pagination.maxPageSize}")
+    private int maxPageSize;
+
+    @Value("${movieInfo.bulk.batchSize}")
+    private int bulkBatchSize;
+
+    @Value("${movieInfo.bulk.maxDelay}")
+    private Duration bulkMaxDelay;
+
+    @Value("${movieInfo.bulk.concurrency}")
+    private int bulkConcurrency;
 
-    public MoviesInfoController(MovieInfoService movieInfoService) {
+    public MoviesInfoController(MovieInfoService movieInfoService, ReplayBuffer<MovieInfoEvent> movieInfoEventBuffer) {
         this.movieInfoService = movieInfoService;
+        this.movieInfoEventBuffer = movieInfoEventBuffer;
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public Mono<MovieInfo> addMovieInfo(@RequestBody @Valid MovieInfo movieInfo) {
         return movieInfoService.addMovieInfo(movieInfo)
-                .doOnNext(savedMovieInfo -> movieInfoSink.tryEmitNext(savedMovieInfo));
+                .doOnNext(savedMovieInfo -> movieInfoEventBuffer.emit(MovieInfoEvent.created(savedMovieInfo)));
+    }
+
+    // catalog imports: one MovieInfo per NDJSON line in, one result per line out, in the same order
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfoIngestResult> ingestMovieInfos(@RequestBody Flux<MovieInfo> movieInfos) {
+        return movieInfoService.ingestMovieInfos(movieInfos, bulkBatchSize, bulkMaxDelay, bulkConcurrency)
+                .doOnNext(result -> {
+                    switch (result.getStatus()) {
+                        case CREATED -> movieInfoEventBuffer.emit(MovieInfoEvent.created(result.getMovieInfo()));
+                        case UPDATED -> movieInfoEventBuffer.emit(MovieInfoEvent.updated(result.getMovieInfo()));
+                        default -> { }
+                    }
+                });
     }
 
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
-    public Flux<MovieInfo> getAllMovieInfos(@RequestParam(value = "year", required = false) Integer year, @RequestParam(value = "name", required = false) String name) {
+    public Mono<ResponseEntity<Flux<MovieInfo>>> getAllMovieInfos(@RequestParam(value = "ids", required = false) List<String> ids,
+                                                                 @RequestParam(value = "year", required = false) Integer year,
+                                                                 @RequestParam(value = "name", required = false) String name,
+                                                                 @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                                 @RequestParam(value = "cursor", required = false) String cursor) {
+        if (ids != null) {
+            // batch lookup for aggregating clients, bounded like a page
+            if (ids.size() > maxPageSize) {
+                return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxPageSize + " ids are allowed per request"));
+            }
+            return Mono.just(ResponseEntity.ok(movieInfoService.findMovieInfosByIds(ids)));
+        }
         if (year != null) {
             if(name != null) {
-                return movieInfoService.getMovieInfoByYear(year)
-                        .filter(movieInfo -> movieInfo.getName().equals(name));
+                return Mono.just(ResponseEntity.ok(movieInfoService.findMovieInfoByYearAndName(year, name)));
             }
-            return movieInfoService.getMovieInfoByYear(year);
+            return Mono.just(ResponseEntity.ok(movieInfoService.getMovieInfoByYear(year)));
         }
         if (name != null) {
-            return movieInfoService.findMovieInfoByName(name);
+            return Mono.just(ResponseEntity.ok(movieInfoService.findMovieInfoByName(name)));
+        }
+        return getMovieInfoPage(pageSize, cursor);
+    }
+
+    // one extra element is fetched to decide whether a next page exists
+    private Mono<ResponseEntity<Flux<MovieInfo>>> getMovieInfoPage(Integer pageSize, String cursor) {
+        var size = pageSize == null ? defaultPageSize : pageSize;
+        if (size < 1) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "pageSize must be a positive value"));
+        }
+        var limit = Math.min(size, maxPageSize);
+        PageCursor pageCursor;
+        try {
+            pageCursor = cursor == null ? null : PageCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage()));
         }
-        return movieInfoService.allMovieInfos();
+        return movieInfoService.findMovieInfoPage(pageCursor, limit + 1)
+                .collectList()
+                .map(movieInfos -> {
+                    var response = ResponseEntity.ok();
+                    if (movieInfos.size() > limit) {
+                        movieInfos = movieInfos.subList(0, limit);
+                        response.header(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode(movieInfos.get(limit - 1).getMovieInfoId()));
+                    }
+                    return response.body(Flux.fromIterable(movieInfos));
+                });
     }
 
 //    @GetMapping("/{id}")
@@ -60,8 +135,31 @@ public class MoviesInfoController {
     }
 
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> getPostedMovieStream() {
-        return movieInfoSink.asFlux();
+    public Flux<MovieInfo> getPostedMovieStream(@RequestParam(value = "fromOffset", defaultValue = "0") long fromOffset) {
+        return postedMovieInfos(fromOffset)
+                .map(ReplayBuffer.Entry::value)
+                .map(MovieInfoEvent::getMovieInfo);
+    }
+
+    // SSE variant carries the offset as event id, a reconnect with Last-Event-ID resumes after it
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MovieInfo>> getPostedMovieEventStream(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return postedMovieInfos(lastEventId == null ? 0 : lastEventId + 1)
+                .map(entry -> ServerSentEvent.builder(entry.value().getMovieInfo())
+                        .id(String.valueOf(entry.offset()))
+                        .build());
+    }
+
+    // all changes (create, update, delete) with their offsets, used by consumers that keep a copy of MovieInfos
+    @GetMapping(value = "/changes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfoEvent> getMovieInfoChanges(@RequestParam(value = "fromOffset", defaultValue = "0") long fromOffset) {
+        return movieInfoEventBuffer.stream(fromOffset)
+                .map(entry -> entry.value().withOffset(entry.offset()));
+    }
+
+    private Flux<ReplayBuffer.Entry<MovieInfoEvent>> postedMovieInfos(long fromOffset) {
+        return movieInfoEventBuffer.stream(fromOffset)
+                .filter(entry -> entry.value().getType() == MovieInfoEvent.Type.CREATED);
     }
 
 //    @PutMapping("/{id}")
@@ -71,17 +169,32 @@ public class MoviesInfoController {
 //    }
 
     @PutMapping("/{id}")
-    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updatedMovieInfo, @PathVariable String id){
-        return movieInfoService.updateMovieInfo(updatedMovieInfo, id)
-                .map(ResponseEntity.ok()::body)
+    public Mono<ResponseEntity<MovieInfo>> updateMovieInfo(@RequestBody MovieInfo updatedMovieInfo, @PathVariable String id,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long expectedVersion;
+        try {
+            expectedVersion = ifMatch == null ? null : Long.valueOf(ifMatch.replaceFirst("^W/", "").replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match must be the version of the MovieInfo"));
+        }
+        return movieInfoService.updateMovieInfo(updatedMovieInfo, id, expectedVersion)
+                .doOnNext(savedMovieInfo -> movieInfoEventBuffer.emit(MovieInfoEvent.updated(savedMovieInfo)))
+                .map(savedMovieInfo -> ResponseEntity.ok().eTag(String.valueOf(savedMovieInfo.getVersion())).body(savedMovieInfo))
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .onErrorMap(OptimisticLockingFailureException.class, e -> new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, e.getMessage()))
+                .transform(SignalTracing.traced("MoviesInfoController.updateMovieInfo"));
     }
 
     @DeleteMapping("/{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<Void> deleteMovies(@PathVariable String id) {
-        return movieInfoService.deleteMovieInfo(id);
+    public Mono<ResponseEntity<Void>> deleteMovies(@PathVariable String id) {
+        return movieInfoService.deleteMovieInfo(id)
+                .map(deleted -> {
+                    if (deleted == 0) {
+                        return ResponseEntity.notFound().build();
+                    }
+                    movieInfoEventBuffer.emit(MovieInfoEvent.deleted(id));
+                    return ResponseEntity.noContent().build();
+                });
     }
 
 }
@@ -8,6 +8,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.PersistenceCreator;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
@@ -16,10 +18,13 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @Document
+// year+name serves findByYear (prefix) as well as findByYearAndName, so year needs no index of its own
+@CompoundIndex(name = "year_name", def = "{'year': 1, 'name': 1}")
 public class MovieInfo {
     @Id
     private String movieInfoId;
     @NotBlank(message="movieInfo.name must be present")
+    @Indexed(name = "name")
     private String name;
     @NotNull
     @Positive(message="movieInfo.year must be a positive value")
@@ -27,6 +32,8 @@ public class MovieInfo {
     @NotEmpty(message="movieInfo.cast must be present")
     private List<@NotBlank(message="movieInfo.cast must be present")String> cast;
     private LocalDate release_date;
+    // incremented by every update, a PUT with If-Match only applies to the version the client has read
+    private Long version;
 
     @PersistenceCreator
     public MovieInfo(String movieInfoId, String name, Integer year, List<String> cast, LocalDate release_date) {
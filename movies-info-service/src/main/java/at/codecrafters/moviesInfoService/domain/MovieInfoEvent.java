@@ -0,0 +1,36 @@
+package at.codecrafters.moviesInfoService.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    // assigned by the stream, null until the event has been published
+    private Long offset;
+    private Type type;
+    private String movieInfoId;
+    // null for DELETED
+    private MovieInfo movieInfo;
+
+    public static MovieInfoEvent created(MovieInfo movieInfo) {
+        return new MovieInfoEvent(null, Type.CREATED, movieInfo.getMovieInfoId(), movieInfo);
+    }
+
+    public static MovieInfoEvent updated(MovieInfo movieInfo) {
+        return new MovieInfoEvent(null, Type.UPDATED, movieInfo.getMovieInfoId(), movieInfo);
+    }
+
+    public static MovieInfoEvent deleted(String movieInfoId) {
+        return new MovieInfoEvent(null, Type.DELETED, movieInfoId, null);
+    }
+
+    public MovieInfoEvent withOffset(long offset) {
+        return new MovieInfoEvent(offset, type, movieInfoId, movieInfo);
+    }
+}
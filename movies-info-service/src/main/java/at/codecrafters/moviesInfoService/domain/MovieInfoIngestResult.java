@@ -0,0 +1,43 @@
+package at.codecrafters.moviesInfoService.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one line of the bulk ingest response, in the order of the request lines
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MovieInfoIngestResult {
+
+    public enum Status { CREATED, UPDATED, INVALID, FAILED }
+
+    // position of the MovieInfo in the request, starting with 0
+    private long index;
+    private String movieInfoId;
+    private Status status;
+    // null unless INVALID or FAILED
+    private String error;
+    // the written MovieInfo, published to the changes stream but not part of the response
+    @JsonIgnore
+    private MovieInfo movieInfo;
+
+    public static MovieInfoIngestResult written(MovieInfo movieInfo, boolean created) {
+        return new MovieInfoIngestResult(0, movieInfo.getMovieInfoId(), created ? Status.CREATED : Status.UPDATED, null, movieInfo);
+    }
+
+    public static MovieInfoIngestResult invalid(MovieInfo movieInfo, String error) {
+        return new MovieInfoIngestResult(0, movieInfo.getMovieInfoId(), Status.INVALID, error, null);
+    }
+
+    public static MovieInfoIngestResult failed(MovieInfo movieInfo, String error) {
+        return new MovieInfoIngestResult(0, movieInfo.getMovieInfoId(), Status.FAILED, error, null);
+    }
+
+    public MovieInfoIngestResult withIndex(long index) {
+        return new MovieInfoIngestResult(index, movieInfoId, status, error, movieInfo);
+    }
+}
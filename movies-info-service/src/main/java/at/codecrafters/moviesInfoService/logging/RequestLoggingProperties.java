@@ -0,0 +1,23 @@
+package at.codecrafters.moviesInfoService.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "request-logging")
+public class RequestLoggingProperties {
+
+    private boolean enabled = true;
+
+    // fraction of the successful requests that is logged, 5xx are always logged, slow ones unless their route's rate is 0
+    private double sampleRate = 0.01;
+
+    // sample rate per path pattern, e.g. "[/v1/movieinfos/stream]": 1.0, the first matching pattern wins; 0.0 logs only 5xx
+    private Map<String, Double> routes = new LinkedHashMap<>();
+
+    private Duration slowThreshold = Duration.ofSeconds(1);
+}
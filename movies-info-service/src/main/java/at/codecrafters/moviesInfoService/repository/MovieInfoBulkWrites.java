@@ -0,0 +1,14 @@
+package at.codecrafters.moviesInfoService.repository;
+
+import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.domain.MovieInfoIngestResult;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface MovieInfoBulkWrites {
+
+    // a single unordered bulk write: MovieInfos without id are inserted, the others upserted like an update;
+    // emits one result per MovieInfo in the order of the list, a failed write does not stop the others
+    Flux<MovieInfoIngestResult> bulkWrite(List<MovieInfo> movieInfos);
+}
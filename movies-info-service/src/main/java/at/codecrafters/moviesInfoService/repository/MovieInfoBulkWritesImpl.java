@@ -0,0 +1,102 @@
+package at.codecrafters.moviesInfoService.repository;
+
+import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.domain.MovieInfoIngestResult;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class MovieInfoBulkWritesImpl implements MovieInfoBulkWrites {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    MovieInfoBulkWritesImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Flux<MovieInfoIngestResult> bulkWrite(List<MovieInfo> movieInfos) {
+        var bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MovieInfo.class);
+        var inserted = new ArrayList<Integer>();
+        for (int i = 0; i < movieInfos.size(); i++) {
+            var movieInfo = movieInfos.get(i);
+            if (movieInfo.getMovieInfoId() == null) {
+                // the id is assigned here, the response has to report it
+                movieInfo.setMovieInfoId(new ObjectId().toHexString());
+                movieInfo.setVersion(null);
+                bulkOperations.insert(movieInfo);
+                inserted.add(i);
+            } else {
+                // same fields as a PUT, a repeated import counts as an update
+                bulkOperations.upsert(query(where("_id").is(movieInfo.getMovieInfoId())), new Update()
+                        .set("name", movieInfo.getName())
+                        .set("cast", movieInfo.getCast())
+                        .set("year", movieInfo.getYear())
+                        .set("release_date", movieInfo.getRelease_date())
+                        .inc("version", 1));
+            }
+        }
+        return bulkOperations.execute()
+                .map(result -> results(movieInfos, inserted, result, Map.of()))
+                .onErrorResume(e -> {
+                    var bulkWriteException = bulkWriteException(e);
+                    if (bulkWriteException == null) {
+                        return Mono.just(failed(movieInfos, e));
+                    }
+                    var errors = bulkWriteException.getWriteErrors().stream()
+                            .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage));
+                    return Mono.just(results(movieInfos, inserted, bulkWriteException.getWriteResult(), errors));
+                })
+                .flatMapIterable(Function.identity());
+    }
+
+    // e.g. a timeout or a lost connection, no per-item outcome is known, so the whole batch is reported as failed
+    private static List<MovieInfoIngestResult> failed(List<MovieInfo> movieInfos, Throwable e) {
+        return movieInfos.stream()
+                .map(movieInfo -> MovieInfoIngestResult.failed(movieInfo, String.valueOf(e.getMessage())))
+                .toList();
+    }
+
+    private static List<MovieInfoIngestResult> results(List<MovieInfo> movieInfos, List<Integer> inserted,
+                                                       BulkWriteResult result, Map<Integer, String> errors) {
+        Set<Integer> created = result.getUpserts().stream()
+                .map(BulkWriteUpsert::getIndex)
+                .collect(Collectors.toSet());
+        created.addAll(inserted);
+        var results = new ArrayList<MovieInfoIngestResult>(movieInfos.size());
+        for (int i = 0; i < movieInfos.size(); i++) {
+            var error = errors.get(i);
+            results.add(error != null
+                    ? MovieInfoIngestResult.failed(movieInfos.get(i), error)
+                    : MovieInfoIngestResult.written(movieInfos.get(i), created.contains(i)));
+        }
+        return results;
+    }
+
+    // the exception translation wraps the driver exception, e.g. into a DuplicateKeyException
+    private static MongoBulkWriteException bulkWriteException(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkWriteException) {
+                return bulkWriteException;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,11 @@
+package at.codecrafters.moviesInfoService.repository;
+
+import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.util.PageCursor;
+import reactor.core.publisher.Flux;
+
+public interface MovieInfoPages {
+
+    // the next page after the cursor in _id order, Strings sort before ObjectIds
+    Flux<MovieInfo> findMovieInfosAfter(PageCursor cursor, int limit);
+}
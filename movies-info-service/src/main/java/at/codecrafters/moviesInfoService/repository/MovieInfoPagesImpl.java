@@ -0,0 +1,32 @@
+package at.codecrafters.moviesInfoService.repository;
+
+import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.util.PageCursor;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import reactor.core.publisher.Flux;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class MovieInfoPagesImpl implements MovieInfoPages {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    MovieInfoPagesImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // $gt only matches ids of the cursor's BSON type, after a String id all ObjectIds are still to come
+    @Override
+    public Flux<MovieInfo> findMovieInfosAfter(PageCursor cursor, int limit) {
+        var criteria = cursor.isObjectId()
+                ? where("_id").gt(new ObjectId(cursor.getLastId()))
+                : new Criteria().orOperator(where("_id").gt(cursor.getLastId()),
+                        where("_id").type(JsonSchemaObject.Type.objectIdType()));
+        return mongoTemplate.find(query(criteria).with(Sort.by("_id")).limit(limit), MovieInfo.class);
+    }
+}
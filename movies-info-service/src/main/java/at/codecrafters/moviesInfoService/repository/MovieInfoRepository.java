@@ -1,12 +1,21 @@
 package at.codecrafters.moviesInfoService.repository;
 
 import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String> {
+public interface MovieInfoRepository extends ReactiveMongoRepository<MovieInfo, String>, MovieInfoUpdates, MovieInfoBulkWrites, MovieInfoPages {
 
     Flux<MovieInfo> findByYear(Integer year);
 
     Flux<MovieInfo> findByName(String name);
+
+    Flux<MovieInfo> findByYearAndName(Integer year, String name);
+
+    Flux<MovieInfo> findAllByOrderByMovieInfoIdAsc(Limit limit);
+
+    // a single delete command that reports the number of deleted documents, deleteById does not
+    Mono<Long> deleteByMovieInfoId(String movieInfoId);
 }
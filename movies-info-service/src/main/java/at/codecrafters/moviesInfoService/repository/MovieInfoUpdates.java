@@ -0,0 +1,15 @@
+package at.codecrafters.moviesInfoService.repository;
+
+import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import reactor.core.publisher.Mono;
+
+public interface MovieInfoUpdates {
+
+    // atomically sets the updatable fields and increments the version, emits the updated MovieInfo;
+    // empty if there is no MovieInfo with the id or, with an expected version, it has been changed in the meantime
+    Mono<MovieInfo> updateMovieInfo(String movieInfoId, MovieInfo movieInfoUpdate, Long expectedVersion);
+
+    // atomically sets the fields of the MovieInfo with its id or inserts it, increments the version either way;
+    // emits the written MovieInfo
+    Mono<MovieInfo> replaceMovieInfo(MovieInfo movieInfo);
+}
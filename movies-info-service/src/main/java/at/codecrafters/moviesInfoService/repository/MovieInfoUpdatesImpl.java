@@ -0,0 +1,54 @@
+package at.codecrafters.moviesInfoService.repository;
+
+import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class MovieInfoUpdatesImpl implements MovieInfoUpdates {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    MovieInfoUpdatesImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // a single findAndModify with $set instead of findById and save, the document is never sent back as a whole
+    @Override
+    public Mono<MovieInfo> updateMovieInfo(String movieInfoId, MovieInfo movieInfoUpdate, Long expectedVersion) {
+        return mongoTemplate.findAndModify(query(versioned(movieInfoId, expectedVersion)), fieldsAndVersion(movieInfoUpdate),
+                FindAndModifyOptions.options().returnNew(true), MovieInfo.class);
+    }
+
+    // an upsert instead of save, so a POST over an existing id never resets or sets the stored version
+    @Override
+    public Mono<MovieInfo> replaceMovieInfo(MovieInfo movieInfo) {
+        return mongoTemplate.findAndModify(query(where("_id").is(movieInfo.getMovieInfoId())), fieldsAndVersion(movieInfo),
+                FindAndModifyOptions.options().upsert(true).returnNew(true), MovieInfo.class);
+    }
+
+    private static Update fieldsAndVersion(MovieInfo movieInfo) {
+        return new Update()
+                .set("name", movieInfo.getName())
+                .set("cast", movieInfo.getCast())
+                .set("year", movieInfo.getYear())
+                .set("release_date", movieInfo.getRelease_date())
+                .inc("version", 1);
+    }
+
+    // MovieInfos written before versioning have no version field, they count as version 0
+    private static Criteria versioned(String movieInfoId, Long expectedVersion) {
+        var criteria = where("_id").is(movieInfoId);
+        if (expectedVersion == null) {
+            return criteria;
+        }
+        return expectedVersion == 0
+                ? criteria.and("version").in(0L, null)
+                : criteria.and("version").is(expectedVersion);
+    }
+}
@@ -1,51 +1,133 @@
 package at.codecrafters.moviesInfoService.service;
 
 import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.domain.MovieInfoIngestResult;
+import at.codecrafters.moviesInfoService.logging.SignalTracing;
 import at.codecrafters.moviesInfoService.repository.MovieInfoRepository;
+import at.codecrafters.moviesInfoService.util.PageCursor;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 public class MovieInfoService {
 
     private final MovieInfoRepository movieInfoRepository;
 
-    public MovieInfoService(MovieInfoRepository movieInfoRepository) {
+    private final Validator validator;
+
+    public MovieInfoService(MovieInfoRepository movieInfoRepository, Validator validator) {
         this.movieInfoRepository = movieInfoRepository;
+        this.validator = validator;
     }
 
+    // the version belongs to the server, a POST with the id of an existing MovieInfo replaces it as an update would
     public Mono<MovieInfo> addMovieInfo(MovieInfo movieInfo) {
-        return movieInfoRepository.save(movieInfo).log();
+        movieInfo.setVersion(null);
+        var saved = movieInfo.getMovieInfoId() == null
+                ? movieInfoRepository.save(movieInfo)
+                : movieInfoRepository.replaceMovieInfo(movieInfo);
+        return saved
+                .transform(SignalTracing.traced("MovieInfoService.addMovieInfo"));
+    }
+
+    /**
+     * Validates every MovieInfo and writes the valid ones in unordered bulk writes of up to {@code batchSize}; a batch
+     * that has not filled up within {@code maxDelay} is written anyway, so a slow producer still gets results.
+     * At most {@code concurrency} batches are in flight, the request body is only read as fast as they complete.
+     * Emits one result per MovieInfo in the order of the input.
+     */
+    public Flux<MovieInfoIngestResult> ingestMovieInfos(Flux<MovieInfo> movieInfos, int batchSize, Duration maxDelay, int concurrency) {
+        return movieInfos
+                .index()
+                .bufferTimeout(batchSize, maxDelay, true)
+                .flatMapSequential(this::ingestBatch, concurrency, 1);
+    }
+
+    private Flux<MovieInfoIngestResult> ingestBatch(List<Tuple2<Long, MovieInfo>> batch) {
+        var results = new MovieInfoIngestResult[batch.size()];
+        var valid = new ArrayList<MovieInfo>(batch.size());
+        var validIndexes = new ArrayList<Integer>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            var movieInfo = batch.get(i).getT2();
+            var violations = validator.validate(movieInfo);
+            if (violations.isEmpty()) {
+                valid.add(movieInfo);
+                validIndexes.add(i);
+            } else {
+                results[i] = MovieInfoIngestResult.invalid(movieInfo, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            }
+        }
+        var written = valid.isEmpty()
+                ? Flux.<MovieInfoIngestResult>empty()
+                : movieInfoRepository.bulkWrite(valid);
+        return written
+                .index()
+                .doOnNext(result -> results[validIndexes.get(result.getT1().intValue())] = result.getT2())
+                .thenMany(Flux.range(0, batch.size())
+                        .map(i -> results[i].withIndex(batch.get(i).getT1())));
     }
 
-    public Flux<MovieInfo> allMovieInfos() {
-        return movieInfoRepository.findAll();
+    // keyset pagination on _id, cursor == null starts with the first page
+    public Flux<MovieInfo> findMovieInfoPage(PageCursor cursor, int limit) {
+        if (cursor == null) {
+            return movieInfoRepository.findAllByOrderByMovieInfoIdAsc(Limit.of(limit));
+        }
+        return movieInfoRepository.findMovieInfosAfter(cursor, limit);
+    }
+
+    // single $in query, unknown ids are simply not part of the result
+    public Flux<MovieInfo> findMovieInfosByIds(List<String> ids) {
+        return movieInfoRepository.findAllById(ids);
     }
 
     public Mono<MovieInfo> findMovieInfoById(String id) {
         return movieInfoRepository.findById(id);
     }
 
-    public Mono<MovieInfo> updateMovieInfo(MovieInfo movieInfoUpdate, String id) {
-        return movieInfoRepository.findById(id)
-                .flatMap(movieInfo -> {
-                    movieInfo.setName(movieInfoUpdate.getName());
-                    movieInfo.setCast(movieInfoUpdate.getCast());
-                    movieInfo.setYear(movieInfoUpdate.getYear());
-                    movieInfo.setRelease_date(movieInfoUpdate.getRelease_date());
-                    return movieInfoRepository.save(movieInfo);
-                });
+    // expectedVersion == null updates unconditionally, otherwise only the MovieInfo with that version
+    public Mono<MovieInfo> updateMovieInfo(MovieInfo movieInfoUpdate, String id, Long expectedVersion) {
+        return movieInfoRepository.updateMovieInfo(id, movieInfoUpdate, expectedVersion)
+                .switchIfEmpty(Mono.defer(() -> notUpdated(id, expectedVersion)));
+    }
+
+    // the update matched nothing, a second lookup is only needed to tell a conflict from a missing MovieInfo
+    private Mono<MovieInfo> notUpdated(String id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.empty();
+        }
+        return movieInfoRepository.existsById(id)
+                .flatMap(exists -> exists
+                        ? Mono.error(new OptimisticLockingFailureException("MovieInfo " + id + " has been changed, expected version: " + expectedVersion))
+                        : Mono.empty());
     }
 
-    public Mono<Void> deleteMovieInfo(String id) {
-        return movieInfoRepository.deleteById(id);
+    // emits the number of deleted MovieInfos, 0 if there was none with the id
+    public Mono<Long> deleteMovieInfo(String id) {
+        return movieInfoRepository.deleteByMovieInfoId(id);
     }
 
     public Flux<MovieInfo> getMovieInfoByYear(Integer year) {
         return movieInfoRepository.findByYear(year);
     }
 
+    public Flux<MovieInfo> findMovieInfoByYearAndName(Integer year, String name) {
+        return movieInfoRepository.findByYearAndName(year, name);
+    }
+
     public Flux<MovieInfo> findMovieInfoByName(String name) {
         return movieInfoRepository.findByName(name);
     }
@@ -0,0 +1,40 @@
+package at.codecrafters.moviesInfoService.stream;
+
+import at.codecrafters.moviesInfoService.domain.MovieInfoEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class MovieInfoStreamConfig {
+
+    @Bean
+    public ReplayBuffer<MovieInfoEvent> movieInfoEventBuffer(@Value("${movieInfo.stream.replay.maxEvents}") int maxEvents,
+                                                             @Value("${movieInfo.stream.replay.maxAge}") Duration maxAge,
+                                                             @Value("${movieInfo.stream.replay.maxBytes}") DataSize maxBytes,
+                                                             @Value("${movieInfo.stream.subscriberBufferSize}") int subscriberBufferSize,
+                                                             ObjectMapper objectMapper,
+                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        return new ReplayBuffer<>("movieinfo.stream", maxEvents, maxAge, maxBytes.toBytes(), subscriberBufferSize,
+                event -> serializedSize(objectMapper, event),
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                Clock.systemUTC());
+    }
+
+    private static long serializedSize(ObjectMapper objectMapper, Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value).length;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to estimate size of " + value, e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package at.codecrafters.moviesInfoService.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hot stream that keeps a bounded window of the latest events for late subscribers.
+ * Every event gets a monotonically increasing offset, so clients can resume after a reconnect
+ * instead of replaying the whole window. The window is bounded by event count, age and
+ * an estimated byte budget; a limit of 0 disables that bound.
+ * Each subscriber may fall at most {@code maxPending} live events behind, a slower one fails with an overflow
+ * error and resumes from the offset after the last event it has received.
+ */
+public class ReplayBuffer<T> {
+
+    public record Entry<T>(long offset, Instant timestamp, long sizeBytes, T value) {
+    }
+
+    private final int maxEvents;
+    private final Duration maxAge;
+    private final long maxBytes;
+    private final int maxPending;
+    private final ToLongFunction<T> sizeEstimator;
+    private final Clock clock;
+
+    private final Deque<Entry<T>> entries = new ArrayDeque<>();
+    private final Sinks.Many<Entry<T>> live = Sinks.many().multicast().directBestEffort();
+    private long nextOffset;
+    private long totalBytes;
+    // events handed to a subscriber that it has not consumed yet, one counter per subscription
+    private final Set<AtomicLong> backlogs = ConcurrentHashMap.newKeySet();
+
+    private final Counter evictedByCount;
+    private final Counter evictedByAge;
+    private final Counter evictedByBytes;
+    private final Counter overflows;
+
+    public ReplayBuffer(String name, int maxEvents, Duration maxAge, long maxBytes, int maxPending,
+                        ToLongFunction<T> sizeEstimator, MeterRegistry meterRegistry, Clock clock) {
+        this.maxEvents = maxEvents;
+        this.maxAge = maxAge;
+        this.maxBytes = maxBytes;
+        this.maxPending = maxPending;
+        this.sizeEstimator = sizeEstimator;
+        this.clock = clock;
+        this.evictedByCount = evictionCounter(meterRegistry, name, "count");
+        this.evictedByAge = evictionCounter(meterRegistry, name, "age");
+        this.evictedByBytes = evictionCounter(meterRegistry, name, "bytes");
+        this.overflows = meterRegistry.counter(name + ".subscribers.overflows");
+        Gauge.builder(name + ".buffer.size", this, ReplayBuffer::size).register(meterRegistry);
+        Gauge.builder(name + ".buffer.bytes", this, ReplayBuffer::bytes).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder(name + ".subscribers", this, ReplayBuffer::currentSubscriberCount).register(meterRegistry);
+        Gauge.builder(name + ".subscribers.backlog", this, ReplayBuffer::backlog).register(meterRegistry);
+    }
+
+    /**
+     * Appends the value to the window and pushes it to all live subscribers.
+     *
+     * @return the offset assigned to the value
+     */
+    public synchronized long emit(T value) {
+        var size = maxBytes > 0 ? sizeEstimator.applyAsLong(value) : 0L;
+        var entry = new Entry<>(nextOffset++, clock.instant(), size, value);
+        entries.addLast(entry);
+        totalBytes += size;
+        evict();
+        // emission happens under the lock, so the sink is never accessed concurrently
+        live.tryEmitNext(entry);
+        return entry.offset();
+    }
+
+    /**
+     * Replays the retained events with an offset of at least {@code fromOffset} and continues with live events.
+     * Snapshot and live subscription happen under the emit lock, so no event is lost or delivered twice.
+     * The replay is bounded by the window, the live events buffered on top of it by {@code maxPending}.
+     */
+    public Flux<Entry<T>> stream(long fromOffset) {
+        return Flux.defer(() -> {
+            var backlog = new AtomicLong();
+            // replayed events not consumed yet, the ones consumed after them are live events
+            var replayLeft = new AtomicLong();
+            var pendingLive = new AtomicLong();
+            backlogs.add(backlog);
+            return Flux.<Entry<T>>create(sink -> {
+                        Disposable subscription;
+                        synchronized (this) {
+                            evict();
+                            var replay = entries.stream()
+                                    .filter(entry -> entry.offset() >= fromOffset)
+                                    .toList();
+                            replayLeft.set(replay.size());
+                            replay.forEach(entry -> next(sink, backlog, entry));
+                            subscription = live.asFlux().subscribe(entry -> nextLive(sink, backlog, pendingLive, entry), sink::error, sink::complete);
+                        }
+                        sink.onDispose(subscription);
+                    }, FluxSink.OverflowStrategy.BUFFER)
+                    .doOnNext(entry -> {
+                        backlog.decrementAndGet();
+                        if (replayLeft.get() > 0) {
+                            replayLeft.decrementAndGet();
+                        } else {
+                            pendingLive.decrementAndGet();
+                        }
+                    })
+                    .doFinally(signal -> backlogs.remove(backlog));
+        });
+    }
+
+    public synchronized List<Entry<T>> snapshot() {
+        return List.copyOf(entries);
+    }
+
+    public synchronized long nextOffset() {
+        return nextOffset;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return totalBytes;
+    }
+
+    public int currentSubscriberCount() {
+        return live.currentSubscriberCount();
+    }
+
+    /**
+     * Events buffered for all current subscribers that they have not consumed yet.
+     */
+    public long backlog() {
+        return backlogs.stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    private static <T> void next(FluxSink<Entry<T>> sink, AtomicLong backlog, Entry<T> entry) {
+        backlog.incrementAndGet();
+        sink.next(entry);
+    }
+
+    // the subscriber gets the events buffered so far and then the error, so it knows where to resume
+    private void nextLive(FluxSink<Entry<T>> sink, AtomicLong backlog, AtomicLong pendingLive, Entry<T> entry) {
+        if (maxPending > 0 && pendingLive.get() >= maxPending) {
+            overflows.increment();
+            sink.error(Exceptions.failWithOverflow("Subscriber fell more than " + maxPending
+                    + " events behind, resume from offset " + entry.offset()));
+            return;
+        }
+        pendingLive.incrementAndGet();
+        next(sink, backlog, entry);
+    }
+
+    private void evict() {
+        while (maxEvents > 0 && entries.size() > maxEvents) {
+            removeOldest(evictedByCount);
+        }
+        while (maxBytes > 0 && totalBytes > maxBytes && entries.size() > 1) {
+            removeOldest(evictedByBytes);
+        }
+        if (!maxAge.isZero()) {
+            var oldestAllowed = clock.instant().minus(maxAge);
+            while (!entries.isEmpty() && entries.peekFirst().timestamp().isBefore(oldestAllowed)) {
+                removeOldest(evictedByAge);
+            }
+        }
+    }
+
+    private void removeOldest(Counter reason) {
+        var removed = entries.removeFirst();
+        totalBytes -= removed.sizeBytes();
+        reason.increment();
+    }
+
+    private static Counter evictionCounter(MeterRegistry meterRegistry, String name, String reason) {
+        return Counter.builder(name + ".evictions")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,59 @@
+package at.codecrafters.moviesInfoService.util;
+
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination, wraps the id of the last element of a page together with the BSON
+ * type it is stored as. A String {@code @Id} that is a valid ObjectId hex string is stored as an ObjectId, any other
+ * as a String, and Mongo only compares ids of the same type.
+ */
+public final class PageCursor {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String OBJECT_ID_PREFIX = "o:";
+
+    private static final String STRING_PREFIX = "s:";
+
+    private final String lastId;
+
+    private final boolean objectId;
+
+    private PageCursor(String lastId, boolean objectId) {
+        this.lastId = lastId;
+        this.objectId = objectId;
+    }
+
+    public String getLastId() {
+        return lastId;
+    }
+
+    // the last id is stored as an ObjectId, otherwise as a String
+    public boolean isObjectId() {
+        return objectId;
+    }
+
+    public static String encode(String lastId) {
+        var token = (ObjectId.isValid(lastId) ? OBJECT_ID_PREFIX : STRING_PREFIX) + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        String token;
+        try {
+            token = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+        if (token.startsWith(OBJECT_ID_PREFIX) && ObjectId.isValid(token.substring(OBJECT_ID_PREFIX.length()))) {
+            return new PageCursor(token.substring(OBJECT_ID_PREFIX.length()), true);
+        }
+        if (token.startsWith(STRING_PREFIX)) {
+            return new PageCursor(token.substring(STRING_PREFIX.length()), false);
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+}
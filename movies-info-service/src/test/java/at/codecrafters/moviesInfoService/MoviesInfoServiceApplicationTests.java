@@ -3,7 +3,8 @@ package at.codecrafters.moviesInfoService;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// no Mongo here, the startup index check would fail the context
+@SpringBootTest(properties = "mongo.indexes.ensureOnStartup=false")
 class MoviesInfoServiceApplicationTests {
 
 	@Test
@@ -1,22 +1,33 @@
 package at.codecrafters.moviesInfoService.controller;
 
 import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.domain.MovieInfoIngestResult;
 import at.codecrafters.moviesInfoService.repository.MovieInfoRepository;
+import at.codecrafters.moviesInfoService.util.PageCursor;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 import java.net.URI;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -101,6 +112,69 @@ class MoviesInfoControllerIntgTest {
 
     }
 
+    @DisplayName("findAll MovieInfo paged Intg Test")
+    @Test
+    void getAllMovieInfos_paged() {
+        //given
+        var total = movieInfoRepository.count().block();
+        var seenIds = new HashSet<String>();
+        String cursor = null;
+        //when
+        do {
+            var uriBuilder = UriComponentsBuilder.fromUriString("/v1/movieinfos")
+                    .queryParam("pageSize", 2);
+            if (cursor != null) {
+                uriBuilder.queryParam("cursor", cursor);
+            }
+            var result = webTestClient
+                    .get()
+                    .uri(uriBuilder.buildAndExpand().toUri())
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBodyList(MovieInfo.class)
+                    .returnResult();
+            var page = Objects.requireNonNull(result.getResponseBody());
+            assertTrue(page.size() <= 2, "page should not exceed pageSize");
+            page.forEach(movieInfo -> assertTrue(seenIds.add(movieInfo.getMovieInfoId()), "pages must not overlap"));
+            cursor = result.getResponseHeaders().getFirst(PageCursor.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+        //then
+        assertEquals(total, seenIds.size(), "all MovieInfos should be returned across the pages");
+    }
+
+    @DisplayName("findAll MovieInfo paged Intg Test across String and ObjectId ids")
+    @Test
+    void getAllMovieInfos_paged_mixedIdTypes() {
+        //given "abc" is stored as a String, the generated ids as ObjectIds, which sort after all Strings
+        var total = movieInfoRepository.count().block();
+        var ids = new ArrayList<String>();
+        String cursor = null;
+        //when every page ends on a boundary, including the one from "abc" to the first ObjectId
+        do {
+            var uriBuilder = UriComponentsBuilder.fromUriString("/v1/movieinfos")
+                    .queryParam("pageSize", 1);
+            if (cursor != null) {
+                uriBuilder.queryParam("cursor", cursor);
+            }
+            var result = webTestClient
+                    .get()
+                    .uri(uriBuilder.buildAndExpand().toUri())
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBodyList(MovieInfo.class)
+                    .returnResult();
+            Objects.requireNonNull(result.getResponseBody()).forEach(movieInfo -> ids.add(movieInfo.getMovieInfoId()));
+            cursor = result.getResponseHeaders().getFirst(PageCursor.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+        //then
+        assertEquals(total, new HashSet<>(ids).size(), "all MovieInfos should be returned across the pages");
+        assertEquals(total, ids.size(), "pages must not overlap");
+        var abc = ids.indexOf("abc");
+        assertTrue(ids.subList(abc + 1, ids.size()).stream().anyMatch(ObjectId::isValid), "ObjectIds should follow the String id");
+    }
+
     @DisplayName("findByYear MovieInfo Intg Test")
     @Test
     void getAllMovieInfosByYear() {
@@ -147,6 +221,26 @@ class MoviesInfoControllerIntgTest {
 
     }
 
+    @DisplayName("findAll MovieInfo by ids Intg Test")
+    @Test
+    void getMovieInfosByIds() {
+        //given
+        URI uri = UriComponentsBuilder.fromUriString("/v1/movieinfos")
+                .queryParam("ids", "abc,unknown")
+                .buildAndExpand().toUri();
+        //when
+        webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1)
+                .value(movieInfos -> assertEquals("Dark Knight Rises", movieInfos.get(0).getName()));
+        //then
+    }
+
     @DisplayName("findById MovieInfo Controller Test")
     @Test
     void getMovieInfoById() {
@@ -239,6 +333,116 @@ class MoviesInfoControllerIntgTest {
 
     }
 
+    @DisplayName("Update MovieInfo Controller Test with If-Match, a second update of the same version is rejected")
+    @Test
+    void updateMovieInfo_ifMatch() {
+        //given
+        var id = "abc";
+        var mInfo = new MovieInfo("abc","Dark Knight Rises 2", 2008, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        //when
+        webTestClient
+                .put()
+                .uri("/v1/movieinfos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(mInfo)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"");
+        webTestClient
+                .put()
+                .uri("/v1/movieinfos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(new MovieInfo("abc","Lost update", 2008, List.of("Christian Bale"), LocalDate.parse("2012-07-20")))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        //then
+        var movieInfo = movieInfoRepository.findById(id).block();
+        assertNotNull(movieInfo);
+        assertEquals("Dark Knight Rises 2", movieInfo.getName());
+        assertEquals(1L, movieInfo.getVersion());
+    }
+
+    @DisplayName("Add MovieInfo Controller Test over an existing id, a PUT with the If-Match read before is rejected")
+    @Test
+    void addMovieInfo_replaceThenStaleIfMatch() {
+        //given
+        var id = "abc";
+        webTestClient
+                .put()
+                .uri("/v1/movieinfos/{id}", id)
+                .bodyValue(new MovieInfo("abc","Dark Knight Rises 2", 2008, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"");
+        var replacement = new MovieInfo("abc","Replaced", 2012, List.of("Christian Bale"), LocalDate.parse("2012-07-20"));
+        replacement.setVersion(0L);
+        webTestClient
+                .post()
+                .uri("/v1/movieinfos")
+                .bodyValue(replacement)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+        //when
+        webTestClient
+                .put()
+                .uri("/v1/movieinfos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .bodyValue(new MovieInfo("abc","Lost update", 2008, List.of("Christian Bale"), LocalDate.parse("2012-07-20")))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        //then the POST counted as an update instead of resetting the version
+        var movieInfo = movieInfoRepository.findById(id).block();
+        assertNotNull(movieInfo);
+        assertEquals("Replaced", movieInfo.getName());
+        assertEquals(2L, movieInfo.getVersion());
+    }
+
+    @DisplayName("Bulk ingest Controller Test inserts new, updates existing and reports invalid MovieInfos")
+    @Test
+    void ingestMovieInfos() {
+        //given
+        var movieInfos = Flux.just(
+                new MovieInfo(null, "Batman Returns", 1992, List.of("Michael Keaton"), LocalDate.parse("1992-06-19")),
+                new MovieInfo(null, "", 1992, List.of("Michael Keaton"), null),
+                new MovieInfo("abc", "Dark Knight Rises 2", 2012, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+        //when
+        var results = webTestClient
+                .post()
+                .uri("/v1/movieinfos/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(movieInfos, MovieInfo.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfoIngestResult.class);
+
+        //then
+        var createdId = new AtomicReference<String>();
+        StepVerifier.create(results.getResponseBody())
+                .assertNext(result -> {
+                    assertEquals(MovieInfoIngestResult.Status.CREATED, result.getStatus());
+                    createdId.set(result.getMovieInfoId());
+                })
+                .assertNext(result -> assertEquals(MovieInfoIngestResult.Status.INVALID, result.getStatus()))
+                .assertNext(result -> assertEquals(MovieInfoIngestResult.Status.UPDATED, result.getStatus()))
+                .verifyComplete();
+        var created = movieInfoRepository.findById(createdId.get()).block();
+        assertNotNull(created);
+        assertEquals("Batman Returns", created.getName());
+        var updated = movieInfoRepository.findById("abc").block();
+        assertNotNull(updated);
+        assertEquals("Dark Knight Rises 2", updated.getName());
+    }
+
     @DisplayName("Delete MovieInfo Controller Test")
     @Test
     void deleteMovieInfo() {
@@ -263,6 +467,17 @@ class MoviesInfoControllerIntgTest {
                 .isNotFound();
     }
 
+    @DisplayName("Delete MovieInfo Controller Test Fail")
+    @Test
+    void deleteMovieInfo_whenIdNotFound() {
+        webTestClient
+                .delete()
+                .uri("/v1/movieinfos/{id}", "abcx")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
     @DisplayName("Add Movie and use Stream")
     @Test
     void getAllMovies_stream() {
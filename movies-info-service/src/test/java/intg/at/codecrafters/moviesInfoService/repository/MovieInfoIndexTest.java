@@ -0,0 +1,96 @@
+package at.codecrafters.moviesInfoService.repository;
+
+import at.codecrafters.moviesInfoService.config.MongoIndexInitializer;
+import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// fails as soon as a hot query path is no longer backed by an index
+@Testcontainers
+@DataMongoTest
+@ActiveProfiles("test")
+@Import(MongoIndexInitializer.class)
+@TestPropertySource(properties = "mongo.indexes.ensureOnStartup=false")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MovieInfoIndexTest {
+
+    @ServiceConnection
+    private final static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:8.0.5"));
+
+    @Autowired
+    private MovieInfoRepository movieInfoRepository;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @BeforeAll
+    void setUp() {
+        mongoIndexInitializer.ensureIndexes().block();
+        movieInfoRepository.saveAll(List.of(new MovieInfo(null, "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                        new MovieInfo(null, "The Dark Knight", 2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                        new MovieInfo(null, "Dark Knight Rises", 2008, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"))))
+                .blockLast();
+    }
+
+    @AfterAll
+    void tearDown() {
+        movieInfoRepository.deleteAll().block();
+    }
+
+    @Test
+    @DisplayName("Indexes are created once and verified afterwards")
+    void ensureIndexes_isIdempotent() {
+        mongoIndexInitializer.ensureIndexes().block();
+
+        var indexNames = mongoTemplate.indexOps(MovieInfo.class).getIndexInfo()
+                .map(indexInfo -> indexInfo.getName())
+                .collectList()
+                .block();
+        Assertions.assertTrue(indexNames.containsAll(List.of("name", "year_name")), "missing indexes: " + indexNames);
+    }
+
+    @Test
+    @DisplayName("findByYear uses an index")
+    void findByYear_usesIndex() {
+        assertIndexScan(new Document("year", 2008));
+    }
+
+    @Test
+    @DisplayName("findByName uses an index")
+    void findByName_usesIndex() {
+        assertIndexScan(new Document("name", "The Dark Knight"));
+    }
+
+    @Test
+    @DisplayName("findByYearAndName uses an index")
+    void findByYearAndName_usesIndex() {
+        assertIndexScan(new Document("year", 2008).append("name", "The Dark Knight"));
+    }
+
+    private void assertIndexScan(Document filter) {
+        var plan = mongoTemplate.getCollection(mongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.find(filter).explain(Document.class)))
+                .map(explain -> explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson())
+                .block();
+        Assertions.assertNotNull(plan);
+        Assertions.assertFalse(plan.contains("COLLSCAN"), "query " + filter.toJson() + " falls back to a collection scan: " + plan);
+        Assertions.assertTrue(plan.contains("IXSCAN"), "query " + filter.toJson() + " does not use an index: " + plan);
+    }
+}
@@ -1,13 +1,23 @@
 package at.codecrafters.moviesInfoService.controller;
 
 import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.domain.MovieInfoEvent;
+import at.codecrafters.moviesInfoService.domain.MovieInfoIngestResult;
 import at.codecrafters.moviesInfoService.service.MovieInfoService;
+import at.codecrafters.moviesInfoService.stream.MovieInfoStreamConfig;
+import at.codecrafters.moviesInfoService.stream.ReplayBuffer;
+import at.codecrafters.moviesInfoService.util.PageCursor;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
@@ -20,6 +30,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @WebFluxTest(controllers = MoviesInfoController.class)
+@Import(MovieInfoStreamConfig.class)
 //@AutoConfigureWebTestClient
 public class MoviesInfoControllerUnitTest {
     @MockitoBean
@@ -28,6 +39,9 @@ public class MoviesInfoControllerUnitTest {
     @Autowired
     private WebTestClient webTestClient;
 
+    @Autowired
+    private ReplayBuffer<MovieInfoEvent> movieInfoEventBuffer;
+
     @Test
     @DisplayName("Test addMovieInfo Unit Test")
     void testAddMovieInfo() {
@@ -83,7 +97,7 @@ public class MoviesInfoControllerUnitTest {
         //given
         var mInfo = new MovieInfo(null, "xxxBatman Begins", 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
         //when
-        Mockito.when(movieInfoService.allMovieInfos())
+        Mockito.when(movieInfoService.findMovieInfoPage(Mockito.isNull(), Mockito.anyInt()))
                 .thenReturn(Flux.just(mInfo));
 
         var respMovieInfo = webTestClient
@@ -104,6 +118,84 @@ public class MoviesInfoControllerUnitTest {
 
     }
 
+    @DisplayName("findAll MovieInfo Unit Test with next page cursor")
+    @Test
+    void getAllMovieInfos_paged() {
+        //given
+        var mInfos = List.of(new MovieInfo("a", "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("b", "The Dark Knight", 2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18")),
+                new MovieInfo("c", "Dark Knight Rises", 2008, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+        //when
+        Mockito.when(movieInfoService.findMovieInfoPage(Mockito.isNull(), Mockito.eq(3)))
+                .thenReturn(Flux.fromIterable(mInfos));
+
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos?pageSize=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode("b"))
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+        //then
+    }
+
+    @DisplayName("findAll MovieInfo Unit Test invalid cursor")
+    @Test
+    void getAllMovieInfos_invalidCursor() {
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos?cursor=***")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @DisplayName("findAll MovieInfo Unit Test by ids")
+    @Test
+    void getMovieInfosByIds() {
+        //given
+        var mInfos = List.of(new MovieInfo("a", "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15")),
+                new MovieInfo("c", "Dark Knight Rises", 2008, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20")));
+        //when
+        Mockito.when(movieInfoService.findMovieInfosByIds(List.of("a", "b", "c")))
+                .thenReturn(Flux.fromIterable(mInfos));
+
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos?ids=a,b,c")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2);
+        //then
+        Mockito.verify(movieInfoService, Mockito.never()).findMovieInfoPage(Mockito.any(), Mockito.anyInt());
+    }
+
+    @DisplayName("findAll MovieInfo Unit Test by year and name")
+    @Test
+    void getMovieInfosByYearAndName() {
+        //given
+        var mInfo = new MovieInfo("b", "The Dark Knight", 2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18"));
+        //when
+        Mockito.when(movieInfoService.findMovieInfoByYearAndName(2008, "The Dark Knight"))
+                .thenReturn(Flux.just(mInfo));
+
+        webTestClient
+                .get()
+                .uri("/v1/movieinfos?year=2008&name=The Dark Knight")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MovieInfo.class)
+                .hasSize(1);
+        //then
+        Mockito.verify(movieInfoService, Mockito.never()).getMovieInfoByYear(Mockito.anyInt());
+    }
+
     @DisplayName("findById MovieInfo Unit Test")
     @Test
     void getMovieInfoById() {
@@ -131,7 +223,7 @@ public class MoviesInfoControllerUnitTest {
         var id = "abc";
         var mInfo = new MovieInfo("abc","Dark Knight Rises 2", 2008, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
 
-        Mockito.when(movieInfoService.updateMovieInfo(Mockito.any(MovieInfo.class), Mockito.anyString()))
+        Mockito.when(movieInfoService.updateMovieInfo(Mockito.any(MovieInfo.class), Mockito.anyString(), Mockito.isNull()))
                 .thenReturn(Mono.just(mInfo));
 
         //when
@@ -154,13 +246,33 @@ public class MoviesInfoControllerUnitTest {
 
     }
 
+    @DisplayName("Update MovieInfo Unit Test with If-Match of an outdated version")
+    @Test
+    void updateMovieInfo_versionConflict() {
+        //given
+        var id = "abc";
+        var mInfo = new MovieInfo("abc","Dark Knight Rises 2", 2008, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        Mockito.when(movieInfoService.updateMovieInfo(Mockito.any(MovieInfo.class), Mockito.eq(id), Mockito.eq(3L)))
+                .thenReturn(Mono.error(new OptimisticLockingFailureException("MovieInfo abc has been changed, expected version: 3")));
+
+        //when
+        webTestClient
+                .put()
+                .uri("/v1/movieinfos/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .bodyValue(mInfo)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
     @DisplayName("Delete MovieInfo Unit Test")
     @Test
     void deleteMovieInfo() {
         //given
         var id = "abc";
         Mockito.when(movieInfoService.deleteMovieInfo(Mockito.anyString()))
-                .thenReturn(Mono.empty());
+                .thenReturn(Mono.just(1L));
         //when
         webTestClient
                 .delete()
@@ -171,5 +283,102 @@ public class MoviesInfoControllerUnitTest {
                 .returnResult(Void.class);
     }
 
+    @DisplayName("Delete MovieInfo Unit Test when nothing was deleted")
+    @Test
+    void deleteMovieInfo_whenIdNotFound() {
+        //given
+        var fromOffset = movieInfoEventBuffer.nextOffset();
+        Mockito.when(movieInfoService.deleteMovieInfo("abcx"))
+                .thenReturn(Mono.just(0L));
+        //when
+        webTestClient
+                .delete()
+                .uri("/v1/movieinfos/{id}", "abcx")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+        //then
+        Assertions.assertEquals(fromOffset, movieInfoEventBuffer.nextOffset(), "no delete should be published");
+    }
+
+    @DisplayName("Bulk ingest streams one result per line and publishes the written MovieInfos")
+    @Test
+    void ingestMovieInfos() {
+        //given
+        var created = new MovieInfo("abc", "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15"));
+        var invalid = new MovieInfo(null, "", 2005, List.of("Christian Bale"), null);
+        Mockito.when(movieInfoService.ingestMovieInfos(Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.anyInt()))
+                .thenReturn(Flux.just(MovieInfoIngestResult.written(created, true).withIndex(0),
+                        MovieInfoIngestResult.invalid(invalid, "movieInfo.name must be present").withIndex(1)));
+        var fromOffset = movieInfoEventBuffer.nextOffset();
 
+        //when
+        var results = webTestClient
+                .post()
+                .uri("/v1/movieinfos/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(Flux.just(created, invalid), MovieInfo.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(MovieInfoIngestResult.class);
+
+        //then
+        StepVerifier.create(results.getResponseBody())
+                .assertNext(result -> Assertions.assertEquals(MovieInfoIngestResult.Status.CREATED, result.getStatus()))
+                .assertNext(result -> Assertions.assertEquals("movieInfo.name must be present", result.getError()))
+                .verifyComplete();
+        Assertions.assertEquals(fromOffset + 1, movieInfoEventBuffer.nextOffset(), "only the written MovieInfo should be published");
+    }
+
+    @DisplayName("Update and Delete are published to the changes stream")
+    @Test
+    void getMovieInfoChanges() {
+        //given
+        var id = "abc";
+        var mInfo = new MovieInfo("abc","Dark Knight Rises 2", 2008, List.of("Christian Bale", "Tom Hardy"), LocalDate.parse("2012-07-20"));
+        Mockito.when(movieInfoService.updateMovieInfo(Mockito.any(MovieInfo.class), Mockito.anyString(), Mockito.isNull()))
+                .thenReturn(Mono.just(mInfo));
+        Mockito.when(movieInfoService.deleteMovieInfo(Mockito.anyString()))
+                .thenReturn(Mono.just(1L));
+        var fromOffset = movieInfoEventBuffer.nextOffset();
+
+        //when
+        webTestClient.put()
+                .uri("/v1/movieinfos/{id}", id)
+                .bodyValue(mInfo)
+                .exchange()
+                .expectStatus()
+                .isOk();
+        webTestClient.delete()
+                .uri("/v1/movieinfos/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        var changes = webTestClient
+                .get()
+                .uri("/v1/movieinfos/changes?fromOffset={offset}", fromOffset)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(MovieInfoEvent.class);
+
+        //then
+        StepVerifier.create(changes.getResponseBody())
+                .assertNext(event -> {
+                    Assertions.assertEquals(MovieInfoEvent.Type.UPDATED, event.getType(), "update should be published");
+                    Assertions.assertEquals("Dark Knight Rises 2", event.getMovieInfo().getName(), "updated MovieInfo should be included");
+                })
+                .assertNext(event -> {
+                    Assertions.assertEquals(MovieInfoEvent.Type.DELETED, event.getType(), "delete should be published");
+                    Assertions.assertEquals(id, event.getMovieInfoId(), "deleted id should match");
+                    Assertions.assertNotNull(event.getOffset(), "offset should be set");
+                })
+                .thenCancel()
+                .verify();
+    }
 }
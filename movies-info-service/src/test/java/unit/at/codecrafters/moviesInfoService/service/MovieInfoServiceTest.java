@@ -0,0 +1,58 @@
+package at.codecrafters.moviesInfoService.service;
+
+import at.codecrafters.moviesInfoService.domain.MovieInfo;
+import at.codecrafters.moviesInfoService.domain.MovieInfoIngestResult;
+import at.codecrafters.moviesInfoService.repository.MovieInfoRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+class MovieInfoServiceTest {
+
+    private final MovieInfoRepository movieInfoRepository = Mockito.mock(MovieInfoRepository.class);
+
+    private final MovieInfoService movieInfoService = new MovieInfoService(movieInfoRepository,
+            Validation.buildDefaultValidatorFactory().getValidator());
+
+    @DisplayName("Bulk ingest writes valid MovieInfos in batches and reports every line in order")
+    @Test
+    void ingestMovieInfos() {
+        //given
+        var movieInfos = List.of(
+                new MovieInfo(null, "Batman Begins", 2005, List.of("Christian Bale"), LocalDate.parse("2005-06-15")),
+                new MovieInfo(null, "", -1, List.of("Christian Bale"), null),
+                new MovieInfo("abc", "Dark Knight Rises", 2012, List.of("Tom Hardy"), LocalDate.parse("2012-07-20")),
+                new MovieInfo(null, "The Dark Knight", 2008, List.of("Heath Ledger"), LocalDate.parse("2008-07-18")));
+        Mockito.when(movieInfoRepository.bulkWrite(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<MovieInfo>>getArgument(0))
+                        .map(movieInfo -> MovieInfoIngestResult.written(movieInfo, movieInfo.getMovieInfoId() == null)));
+
+        //when
+        var results = movieInfoService.ingestMovieInfos(Flux.fromIterable(movieInfos), 2, Duration.ofSeconds(1), 2);
+
+        //then
+        StepVerifier.create(results)
+                .assertNext(result -> Assertions.assertEquals(MovieInfoIngestResult.Status.CREATED, result.getStatus()))
+                .assertNext(result -> {
+                    Assertions.assertEquals(1, result.getIndex());
+                    Assertions.assertEquals(MovieInfoIngestResult.Status.INVALID, result.getStatus());
+                    Assertions.assertEquals("movieInfo.name must be present, movieInfo.year must be a positive value", result.getError());
+                })
+                .assertNext(result -> {
+                    Assertions.assertEquals(2, result.getIndex());
+                    Assertions.assertEquals(MovieInfoIngestResult.Status.UPDATED, result.getStatus());
+                })
+                .assertNext(result -> Assertions.assertEquals(3, result.getIndex()))
+                .verifyComplete();
+        Mockito.verify(movieInfoRepository).bulkWrite(List.of(movieInfos.get(0)));
+        Mockito.verify(movieInfoRepository).bulkWrite(List.of(movieInfos.get(2), movieInfos.get(3)));
+    }
+}
@@ -0,0 +1,172 @@
+package at.codecrafters.moviesInfoService.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+class ReplayBufferTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    @DisplayName("Replay is limited to the latest maxEvents")
+    void evictsByCount() {
+        //given
+        var buffer = new ReplayBuffer<String>("test", 3, Duration.ZERO, 0, 0, String::length, meterRegistry, clock);
+        //when
+        for (int i = 0; i < 5; i++) {
+            buffer.emit("v" + i);
+        }
+        //then
+        StepVerifier.create(buffer.stream(0).map(ReplayBuffer.Entry::value))
+                .expectNext("v2", "v3", "v4")
+                .thenCancel()
+                .verify();
+        Assertions.assertEquals(2.0, evictions("count"), "two events should be evicted by count");
+    }
+
+    @Test
+    @DisplayName("Replay is limited to the byte budget")
+    void evictsByBytes() {
+        //given
+        var buffer = new ReplayBuffer<String>("test", 0, Duration.ZERO, 10, 0, String::length, meterRegistry, clock);
+        //when
+        buffer.emit("aaaa");
+        buffer.emit("bbbb");
+        buffer.emit("cccc");
+        //then
+        Assertions.assertEquals(2, buffer.size(), "only two events fit into 10 bytes");
+        Assertions.assertEquals(8, buffer.bytes(), "retained bytes should match");
+        Assertions.assertEquals(1.0, evictions("bytes"), "one event should be evicted by bytes");
+    }
+
+    @Test
+    @DisplayName("Events older than maxAge are not replayed")
+    void evictsByAge() {
+        //given
+        var buffer = new ReplayBuffer<String>("test", 0, Duration.ofMinutes(1), 0, 0, String::length, meterRegistry, clock);
+        buffer.emit("old");
+        clock.advance(Duration.ofSeconds(90));
+        buffer.emit("new");
+        //then
+        StepVerifier.create(buffer.stream(0).map(ReplayBuffer.Entry::value))
+                .expectNext("new")
+                .thenCancel()
+                .verify();
+        Assertions.assertEquals(1.0, evictions("age"), "one event should be evicted by age");
+    }
+
+    @Test
+    @DisplayName("Resume from offset replays only newer events and continues live")
+    void resumesFromOffset() {
+        //given
+        var buffer = new ReplayBuffer<String>("test", 100, Duration.ZERO, 0, 0, String::length, meterRegistry, clock);
+        buffer.emit("v0");
+        buffer.emit("v1");
+        buffer.emit("v2");
+        //when
+        var resumed = buffer.stream(2);
+        //then
+        StepVerifier.create(resumed)
+                .assertNext(entry -> {
+                    Assertions.assertEquals(2, entry.offset(), "offset should match");
+                    Assertions.assertEquals("v2", entry.value(), "value should match");
+                })
+                .then(() -> buffer.emit("v3"))
+                .assertNext(entry -> Assertions.assertEquals(3, entry.offset(), "live event should follow the replay"))
+                .thenCancel()
+                .verify();
+        Assertions.assertEquals(0, buffer.currentSubscriberCount(), "cancelled subscriber should be removed");
+    }
+
+    @Test
+    @DisplayName("Subscriber and backlog gauges follow slow subscribers")
+    void subscriberGauges() {
+        //given
+        var buffer = new ReplayBuffer<String>("test", 100, Duration.ZERO, 0, 0, String::length, meterRegistry, clock);
+        buffer.emit("v0");
+        //when a subscriber requests only one of three events
+        StepVerifier.create(buffer.stream(0), 1)
+                .expectNextCount(1)
+                .then(() -> {
+                    buffer.emit("v1");
+                    buffer.emit("v2");
+                    //then
+                    Assertions.assertEquals(1.0, gauge("test.subscribers"), "one subscriber should be connected");
+                    Assertions.assertEquals(2.0, gauge("test.subscribers.backlog"), "two events should wait for the subscriber");
+                })
+                .thenCancel()
+                .verify();
+        Assertions.assertEquals(0.0, gauge("test.subscribers"), "cancelled subscriber should be removed");
+        Assertions.assertEquals(0.0, gauge("test.subscribers.backlog"), "backlog of a cancelled subscriber should be dropped");
+    }
+
+    @Test
+    @DisplayName("A subscriber that falls more than maxPending live events behind fails and can resume from its offset")
+    void slowSubscriberOverflows() {
+        //given
+        var buffer = new ReplayBuffer<String>("test", 100, Duration.ZERO, 0, 2, String::length, meterRegistry, clock);
+        buffer.emit("v0");
+        //when a subscriber requests only the replayed event while three live events arrive
+        StepVerifier.create(buffer.stream(0), 1)
+                .expectNextMatches(entry -> entry.offset() == 0)
+                .then(() -> {
+                    buffer.emit("v1");
+                    buffer.emit("v2");
+                    buffer.emit("v3");
+                })
+                .thenRequest(Long.MAX_VALUE)
+                //then it still gets the buffered events before the overflow error
+                .expectNextMatches(entry -> entry.offset() == 1)
+                .expectNextMatches(entry -> entry.offset() == 2)
+                .verifyErrorMatches(Exceptions::isOverflow);
+        Assertions.assertEquals(1.0, meterRegistry.get("test.subscribers.overflows").counter().count(), "one overflow should be counted");
+        StepVerifier.create(buffer.stream(3).map(ReplayBuffer.Entry::value))
+                .expectNext("v3")
+                .thenCancel()
+                .verify();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private double evictions(String reason) {
+        return meterRegistry.get("test.evictions").tag("reason", reason).counter().count();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.reactivespring.loadtest;
+
+import java.util.Arrays;
+
+// the request types of the traffic mix, the key is used in -Pmix and in the reports
+public enum Endpoint {
+
+    GET_MOVIE("getMovie", "GET movies-service /v1/movies/{id}"),
+    POST_REVIEW("postReview", "POST movies-review-service /v1/reviews"),
+    POST_MOVIE_INFO("postMovieInfo", "POST movies-info-service /v1/movieinfos"),
+    PUT_REVIEW("putReview", "PUT movies-review-service /v1/reviews/{id}"),
+    // conflicts (412 Precondition Failed) are counted as errors
+    PUT_REVIEW_IF_MATCH("putReviewIfMatch", "PUT movies-review-service /v1/reviews/{id} with If-Match"),
+    // latency is the time to the first streamed movie info
+    STREAM_MOVIE_INFOS("streamMovieInfos", "GET movies-service /v1/movies/stream (first event)");
+
+    private final String key;
+
+    private final String description;
+
+    Endpoint(String key, String description) {
+        this.key = key;
+        this.description = description;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    public static Endpoint ofKey(String key) {
+        return Arrays.stream(values())
+                .filter(endpoint -> endpoint.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown endpoint " + key + ", expected one of "
+                        + Arrays.stream(values()).map(Endpoint::key).toList()));
+    }
+}
@@ -0,0 +1,111 @@
+package com.reactivespring.loadtest;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares loading documents with one POST per document against the NDJSON bulk ingest of the same service. Every
+ * measurement boots the service against a fresh in-memory Mongo stand-in and warms it up with the same kind of
+ * requests before the clock starts. Started by the ingestBenchmark Gradle task, see movies-loadtest/build.gradle.
+ */
+@Slf4j
+public class IngestBenchmark {
+
+    private static final ParameterizedTypeReference<Map<String, Object>> DOCUMENT = new ParameterizedTypeReference<>() {
+    };
+
+    private enum Mode { SINGLE_POSTS, BULK }
+
+    public static void main(String[] args) throws Exception {
+        var config = IngestConfig.fromSystemProperties();
+        var webClient = LoadTestHarness.webClient();
+        var header = String.format("ingest benchmark %s: %d single POSTs in flight, %d documents warmup",
+                Instant.now(), config.singlePostConcurrency(), config.warmup());
+        var lines = new ArrayList<String>();
+        System.out.println(header);
+        for (var target : config.targets()) {
+            for (var count : config.counts()) {
+                for (var mode : Mode.values()) {
+                    var elapsed = measure(config, webClient, target, mode, count);
+                    var line = String.format("%-10s %8d documents: %-12s %8d ms %8d documents/s", target.key(), count,
+                            mode == Mode.BULK ? "bulk ingest" : "single POSTs", elapsed.toMillis(),
+                            count * 1000L / Math.max(1, elapsed.toMillis()));
+                    System.out.println(line);
+                    lines.add(line);
+                }
+            }
+        }
+        write(config, header, lines);
+        log.info("Report written to {}", config.reportDir());
+    }
+
+    private static Duration measure(IngestConfig config, WebClient webClient, IngestTarget target, Mode mode, int count) throws Exception {
+        var mongoServer = new MongoServer(new MemoryBackend());
+        var mongoAddress = mongoServer.bind();
+        try (var service = ServiceProcess.start(target.service(), config.serviceJars().get(target), config.serviceJvmArgs(),
+                LoadTestHarness.mongo(mongoAddress, target.database()), config.reportDir().resolve("logs"))) {
+            service.awaitHealthy(webClient, LoadTestHarness.STARTUP_TIMEOUT);
+            var url = service.url(target.path());
+            log.info("{}: {} of {} documents", target.service(), mode, count);
+            ingest(config, webClient, url, target, mode, 0, config.warmup());
+            var start = System.nanoTime();
+            ingest(config, webClient, url, target, mode, config.warmup(), count);
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            var aggregated = target.aggregatedCount(webClient, url).block();
+            if (aggregated != null && aggregated != config.warmup() + count) {
+                throw new IllegalStateException(target.service() + " aggregated " + aggregated + " of " + (config.warmup() + count)
+                        + " documents, see its log");
+            }
+            return elapsed;
+        } finally {
+            mongoServer.shutdownNow();
+        }
+    }
+
+    private static void ingest(IngestConfig config, WebClient webClient, String url, IngestTarget target, Mode mode, int from, int count) {
+        var documents = Flux.range(from, count).map(target::document);
+        var written = switch (mode) {
+            case SINGLE_POSTS -> documents
+                    .flatMap(document -> webClient.post().uri(url)
+                            .bodyValue(document)
+                            .retrieve()
+                            .toBodilessEntity(), config.singlePostConcurrency())
+                    .count()
+                    .block();
+            case BULK -> webClient.post().uri(url + "/bulk")
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(documents, DOCUMENT)
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .retrieve()
+                    .bodyToFlux(DOCUMENT)
+                    .filter(result -> "CREATED".equals(result.get("status")))
+                    .count()
+                    .block();
+        };
+        if (written == null || written != count) {
+            throw new IllegalStateException(target.service() + " wrote " + written + " of " + count + " documents, see its log");
+        }
+    }
+
+    private static void write(IngestConfig config, String header, List<String> lines) throws IOException {
+        Files.createDirectories(config.reportDir());
+        try (var out = new PrintStream(Files.newOutputStream(config.reportDir().resolve("summary.txt")))) {
+            out.println(header);
+            lines.forEach(out::println);
+        }
+    }
+}
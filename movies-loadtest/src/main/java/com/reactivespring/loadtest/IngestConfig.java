@@ -0,0 +1,41 @@
+package com.reactivespring.loadtest;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of an ingest benchmark run, read from {@code loadtest.*} system properties like {@link LoadTestConfig}.
+ */
+public record IngestConfig(List<IngestTarget> targets,
+                           List<Integer> counts,
+                           int warmup,
+                           int singlePostConcurrency,
+                           List<String> serviceJvmArgs,
+                           Map<IngestTarget, Path> serviceJars,
+                           Path reportDir) {
+
+    public static IngestConfig fromSystemProperties() {
+        var targets = Arrays.stream(LoadTestConfig.property("ingest", "movieInfos,reviews").split(","))
+                .map(String::trim)
+                .map(IngestTarget::ofKey)
+                .distinct()
+                .toList();
+        var serviceJars = new EnumMap<IngestTarget, Path>(IngestTarget.class);
+        targets.forEach(target -> serviceJars.put(target, Path.of(LoadTestConfig.required(target.jarProperty()))));
+        return new IngestConfig(
+                targets,
+                Arrays.stream(LoadTestConfig.property("ingestCounts", "10000,100000").split(","))
+                        .map(String::trim)
+                        .map(Integer::valueOf)
+                        .toList(),
+                Integer.parseInt(LoadTestConfig.property("ingestWarmup", "1000")),
+                // concurrent single POSTs, like an importer with a connection pool
+                Integer.parseInt(LoadTestConfig.property("singlePostConcurrency", "64")),
+                List.of(LoadTestConfig.property("serviceJvmArgs", "-Xms256m -Xmx512m").trim().split("\\s+")),
+                serviceJars,
+                Path.of(LoadTestConfig.property("reportDir", "build/reports/ingest")));
+    }
+}
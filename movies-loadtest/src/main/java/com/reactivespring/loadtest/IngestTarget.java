@@ -0,0 +1,101 @@
+package com.reactivespring.loadtest;
+
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// the services with an NDJSON bulk ingest, the key is used in -Pingest and in the report
+public enum IngestTarget {
+
+    MOVIE_INFOS("movieInfos", "movies-info-service", "moviesInfoServiceJar", "movieinfos", "/v1/movieinfos") {
+        @Override
+        Map<String, Object> document(int i) {
+            return Map.of(
+                    "name", "Movie " + i,
+                    "year", 1950 + i % 75,
+                    "cast", List.of("Actor " + i, "Actor " + (i + 1)),
+                    "release_date", "2000-01-01");
+        }
+    },
+    REVIEWS("reviews", "movies-review-service", "moviesReviewServiceJar", "reviews", "/v1/reviews") {
+        // reviews are spread over this many movies, so every batch touches several stats documents
+        private static final int MOVIES = 100;
+
+        @Override
+        Map<String, Object> document(int i) {
+            return Map.of(
+                    "movieInfoId", (long) (i % MOVIES),
+                    "comment", "Review " + i,
+                    "rating", (double) (i % 11));
+        }
+
+        // every review has a rating, so the stats of all movies add up to the number of reviews
+        @Override
+        Mono<Long> aggregatedCount(WebClient webClient, String url) {
+            return Flux.range(0, MOVIES)
+                    .flatMap(movieInfoId -> webClient.get().uri(url + "/stats/{movieInfoId}", movieInfoId)
+                            .retrieve()
+                            .bodyToMono(Map.class), 16)
+                    .map(stats -> ((Number) stats.get("count")).longValue())
+                    .reduce(0L, Long::sum);
+        }
+    };
+
+    private final String key;
+
+    private final String service;
+
+    private final String jarProperty;
+
+    private final String database;
+
+    private final String path;
+
+    IngestTarget(String key, String service, String jarProperty, String database, String path) {
+        this.key = key;
+        this.service = service;
+        this.jarProperty = jarProperty;
+        this.database = database;
+        this.path = path;
+    }
+
+    // the i-th document of a run, without an id so that every line is CREATED
+    abstract Map<String, Object> document(int i);
+
+    // documents counted by an aggregate the ingest maintains next to the documents, empty if there is none to check
+    Mono<Long> aggregatedCount(WebClient webClient, String url) {
+        return Mono.empty();
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public String service() {
+        return service;
+    }
+
+    public String jarProperty() {
+        return jarProperty;
+    }
+
+    public String database() {
+        return database;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public static IngestTarget ofKey(String key) {
+        return Arrays.stream(values())
+                .filter(target -> target.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown ingest target " + key + ", expected one of "
+                        + Arrays.stream(values()).map(IngestTarget::key).toList()));
+    }
+}
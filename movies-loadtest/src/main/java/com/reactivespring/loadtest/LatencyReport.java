@@ -0,0 +1,94 @@
+package com.reactivespring.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms (microseconds, 3 significant digits) and error counts per endpoint.
+ */
+public class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+
+    private final Map<Endpoint, String> firstErrors = new ConcurrentHashMap<>();
+
+    private final LongAdder dropped = new LongAdder();
+
+    public LatencyReport() {
+        for (var endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    public void recordSuccess(Endpoint endpoint, long latencyNanos) {
+        latencies.get(endpoint).recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+    }
+
+    public void recordError(Endpoint endpoint, Throwable error) {
+        errors.get(endpoint).increment();
+        firstErrors.putIfAbsent(endpoint, error.toString());
+    }
+
+    // requests that were due while maxOutstanding requests were still open
+    public void recordDropped() {
+        dropped.increment();
+    }
+
+    public void print(PrintStream out, Duration measured) {
+        out.printf("%-18s %9s %7s %9s %9s %9s %9s %9s %9s%n", "endpoint", "count", "errors", "rps", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (var endpoint : Endpoint.values()) {
+            var histogram = latencies.get(endpoint);
+            var count = histogram.getTotalCount();
+            var errorCount = errors.get(endpoint).sum();
+            if (count == 0 && errorCount == 0) {
+                continue;
+            }
+            out.printf("%-18s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", endpoint.key(), count, errorCount,
+                    (count + errorCount) / (measured.toMillis() / 1000.0),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+        out.printf("dropped (maxOutstanding reached): %d%n", dropped.sum());
+        firstErrors.forEach((endpoint, error) -> out.printf("first error of %s: %s%n", endpoint.key(), error));
+    }
+
+    // summary.txt plus one percentile distribution per endpoint, readable by the HdrHistogram plotter
+    public void write(Path reportDir, Duration measured, String header) throws IOException {
+        Files.createDirectories(reportDir);
+        try (var summary = new PrintStream(Files.newOutputStream(reportDir.resolve("summary.txt")))) {
+            summary.println(header);
+            print(summary, measured);
+        }
+        for (var endpoint : Endpoint.values()) {
+            var histogram = latencies.get(endpoint);
+            if (histogram.getTotalCount() == 0) {
+                continue;
+            }
+            try (var out = new PrintStream(Files.newOutputStream(reportDir.resolve(endpoint.key() + ".hgrm")))) {
+                out.println("# " + endpoint.description() + ", latency in ms");
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,78 @@
+package com.reactivespring.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from {@code loadtest.*} system properties (the Gradle task maps -P properties to them).
+ */
+public record LoadTestConfig(int rps,
+                             Duration duration,
+                             Duration warmup,
+                             Map<Endpoint, Integer> mix,
+                             int seedMovies,
+                             int seedReviewsPerMovie,
+                             int maxOutstanding,
+                             List<String> serviceJvmArgs,
+                             Path moviesInfoServiceJar,
+                             Path moviesReviewServiceJar,
+                             Path moviesServiceJar,
+                             Path reportDir) {
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.parseInt(property("rps", "100")),
+                duration(property("duration", "30s")),
+                duration(property("warmup", "10s")),
+                mix(property("mix", "getMovie=70,postReview=20,postMovieInfo=5,streamMovieInfos=5")),
+                Integer.parseInt(property("seedMovies", "100")),
+                Integer.parseInt(property("seedReviewsPerMovie", "5")),
+                Integer.parseInt(property("maxOutstanding", "10000")),
+                List.of(property("serviceJvmArgs", "-Xms256m -Xmx512m").trim().split("\\s+")),
+                Path.of(required("moviesInfoServiceJar")),
+                Path.of(required("moviesReviewServiceJar")),
+                Path.of(required("moviesServiceJar")),
+                Path.of(property("reportDir", "build/reports/loadtest")));
+    }
+
+    static String property(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+
+    static String required(String name) {
+        var value = System.getProperty("loadtest." + name);
+        if (value == null) {
+            throw new IllegalArgumentException("System property loadtest." + name + " is missing, start the harness with the loadTest Gradle task");
+        }
+        return value;
+    }
+
+    // 30s, 2m, 500ms
+    static Duration duration(String value) {
+        return Duration.parse(value.endsWith("ms")
+                ? "PT" + (Double.parseDouble(value.substring(0, value.length() - 2)) / 1000) + "S"
+                : "PT" + value.toUpperCase());
+    }
+
+    // getMovie=70,postReview=20: relative weights, endpoints that are missing get no traffic
+    static Map<Endpoint, Integer> mix(String value) {
+        var mix = new EnumMap<Endpoint, Integer>(Endpoint.class);
+        for (var part : value.split(",")) {
+            var keyAndWeight = part.trim().split("=");
+            if (keyAndWeight.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry " + part + ", expected <endpoint>=<weight>");
+            }
+            var weight = Integer.parseInt(keyAndWeight[1].trim());
+            if (weight > 0) {
+                mix.put(Endpoint.ofKey(keyAndWeight[0].trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The traffic mix " + value + " does not contain any endpoint");
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,87 @@
+package com.reactivespring.loadtest;
+
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Boots movies-info-service, movies-review-service and movies-service from their boot jars against an in-memory
+ * Mongo stand-in, seeds movie infos and reviews, drives open-loop traffic and writes latency reports per endpoint.
+ * Started by the loadTest Gradle task, see movies-loadtest/build.gradle for the options.
+ */
+@Slf4j
+public class LoadTestHarness {
+
+    static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    public static void main(String[] args) throws Exception {
+        var config = LoadTestConfig.fromSystemProperties();
+        var logDir = config.reportDir().resolve("logs");
+        var webClient = webClient();
+
+        var mongoServer = new MongoServer(new MemoryBackend());
+        var mongoAddress = mongoServer.bind();
+        log.info("In-memory Mongo listening on {}", mongoAddress);
+
+        try (var moviesInfoService = ServiceProcess.start("movies-info-service", config.moviesInfoServiceJar(), config.serviceJvmArgs(),
+                mongo(mongoAddress, "movieinfos"), logDir);
+             var moviesReviewService = ServiceProcess.start("movies-review-service", config.moviesReviewServiceJar(), config.serviceJvmArgs(),
+                     mongo(mongoAddress, "reviews"), logDir)) {
+            moviesInfoService.awaitHealthy(webClient, STARTUP_TIMEOUT);
+            moviesReviewService.awaitHealthy(webClient, STARTUP_TIMEOUT);
+
+            try (var moviesService = ServiceProcess.start("movies-service", config.moviesServiceJar(), config.serviceJvmArgs(),
+                    List.of("--restClient.movieInfoUrl=" + moviesInfoService.url("/v1/movieinfos"),
+                            "--restClient.reviewsUrl=" + moviesReviewService.url("/v1/reviews")), logDir)) {
+                moviesService.awaitHealthy(webClient, STARTUP_TIMEOUT);
+
+                var traffic = new Traffic(webClient, moviesService.url("/v1/movies"), moviesInfoService.url("/v1/movieinfos"),
+                        moviesReviewService.url("/v1/reviews"), config.seedMovies());
+                log.info("Seeding {} movies with {} reviews each", config.seedMovies(), config.seedReviewsPerMovie());
+                traffic.seed(config.seedReviewsPerMovie());
+
+                var report = new LatencyReport();
+                new OpenLoopDriver(config, traffic, report).run();
+
+                var header = String.format("load test %s: %d requests/s for %s after %s warmup, mix %s",
+                        Instant.now(), config.rps(), config.duration(), config.warmup(), config.mix());
+                System.out.println(header);
+                report.print(System.out, config.duration());
+                report.write(config.reportDir(), config.duration(), header);
+                log.info("Reports written to {}", config.reportDir());
+            }
+        } finally {
+            mongoServer.shutdownNow();
+        }
+    }
+
+    // the in-memory server does not implement the 'hello' command the Mongo health indicator sends
+    static List<String> mongo(InetSocketAddress mongoAddress, String database) {
+        return List.of("--spring.data.mongodb.host=localhost", "--spring.data.mongodb.port=" + mongoAddress.getPort(),
+                "--spring.data.mongodb.database=" + database, "--management.health.mongo.enabled=false");
+    }
+
+    // enough connections that the client never queues requests of the open loop
+    static WebClient webClient() {
+        var connectionProvider = ConnectionProvider.builder("loadtest")
+                .maxConnections(2000)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000);
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(16 * 1024 * 1024))
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.reactivespring.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Open-loop traffic: requests are started at a fixed rate whether or not earlier ones have answered, and latency is
+ * measured from the time a request was due, not from when it was actually sent. A slow system therefore shows up
+ * in the latencies instead of silently lowering the request rate (coordinated omission).
+ */
+@Slf4j
+public class OpenLoopDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadTestConfig config;
+
+    private final Traffic traffic;
+
+    private final LatencyReport report;
+
+    private final Endpoint[] endpoints;
+
+    private final int[] cumulativeWeights;
+
+    public OpenLoopDriver(LoadTestConfig config, Traffic traffic, LatencyReport report) {
+        this.config = config;
+        this.traffic = traffic;
+        this.report = report;
+        this.endpoints = config.mix().keySet().toArray(Endpoint[]::new);
+        this.cumulativeWeights = new int[endpoints.length];
+        var total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += config.mix().get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public void run() {
+        var periodNanos = 1_000_000_000L / config.rps();
+        var warmupTicks = config.warmup().toNanos() / periodNanos;
+        var totalTicks = config.warmup().plus(config.duration()).toNanos() / periodNanos;
+        var outstanding = new AtomicInteger();
+        log.info("Driving {} requests/s for {} (+{} warmup), mix {}", config.rps(), config.duration(), config.warmup(), config.mix());
+
+        var start = System.nanoTime();
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(totalTicks)
+                // interval emits the first tick after one period
+                .flatMap(tick -> fire(start + (tick + 1) * periodNanos, tick >= warmupTicks, outstanding), Integer.MAX_VALUE)
+                .then()
+                .block(config.warmup().plus(config.duration()).plus(REQUEST_TIMEOUT).plusSeconds(10));
+    }
+
+    private Mono<Void> fire(long dueNanos, boolean measured, AtomicInteger outstanding) {
+        if (outstanding.get() >= config.maxOutstanding()) {
+            if (measured) {
+                report.recordDropped();
+            }
+            return Mono.empty();
+        }
+        var endpoint = nextEndpoint();
+        outstanding.incrementAndGet();
+        return Mono.defer(() -> traffic.request(endpoint))
+                .timeout(REQUEST_TIMEOUT)
+                .doOnSuccess(response -> {
+                    if (measured) {
+                        report.recordSuccess(endpoint, System.nanoTime() - dueNanos);
+                    }
+                })
+                .doOnError(ex -> {
+                    if (measured) {
+                        report.recordError(endpoint, ex);
+                    }
+                })
+                .onErrorResume(ex -> Mono.empty())
+                .doFinally(signal -> outstanding.decrementAndGet())
+                .then();
+    }
+
+    private Endpoint nextEndpoint() {
+        var value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+}
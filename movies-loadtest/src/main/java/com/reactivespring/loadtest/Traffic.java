@@ -0,0 +1,134 @@
+package com.reactivespring.loadtest;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The requests of the traffic mix. Movie infos get numeric ids, movies-review-service stores movieInfoId as a number.
+ * The seeded reviews are the ones the PUTs update, each with the version this client has seen last.
+ */
+public class Traffic {
+
+    private final WebClient webClient;
+
+    private final String moviesUrl;
+
+    private final String movieInfosUrl;
+
+    private final String reviewsUrl;
+
+    private final int seededMovies;
+
+    private final AtomicLong nextMovieInfoId;
+
+    private final Map<String, Long> reviewVersions = new ConcurrentHashMap<>();
+
+    private volatile List<String> reviewIds = List.of();
+
+    public Traffic(WebClient webClient, String moviesUrl, String movieInfosUrl, String reviewsUrl, int seededMovies) {
+        this.webClient = webClient;
+        this.moviesUrl = moviesUrl;
+        this.movieInfosUrl = movieInfosUrl;
+        this.reviewsUrl = reviewsUrl;
+        this.seededMovies = seededMovies;
+        this.nextMovieInfoId = new AtomicLong(seededMovies + 1L);
+    }
+
+    public void seed(int reviewsPerMovie) {
+        Flux.range(1, seededMovies)
+                .flatMap(id -> postMovieInfo(id), 16)
+                .blockLast();
+        Flux.range(0, seededMovies * reviewsPerMovie)
+                .flatMap(i -> webClient.post().uri(reviewsUrl)
+                        .bodyValue(review(i % seededMovies + 1))
+                        .retrieve()
+                        .bodyToMono(Map.class), 16)
+                // a review that was never updated has no version yet, the service treats it as version 0
+                .doOnNext(review -> reviewVersions.put((String) review.get("reviewId"),
+                        review.get("version") == null ? 0L : ((Number) review.get("version")).longValue()))
+                .blockLast();
+        reviewIds = List.copyOf(reviewVersions.keySet());
+    }
+
+    public Mono<?> request(Endpoint endpoint) {
+        return switch (endpoint) {
+            case GET_MOVIE -> webClient.get().uri(moviesUrl + "/{id}", randomMovieId())
+                    .retrieve()
+                    .bodyToMono(byte[].class);
+            case POST_REVIEW -> postReview(randomMovieId());
+            case POST_MOVIE_INFO -> postMovieInfo(nextMovieInfoId.getAndIncrement());
+            case PUT_REVIEW -> putReview(randomReviewId(), false);
+            case PUT_REVIEW_IF_MATCH -> putReview(randomReviewId(), true);
+            case STREAM_MOVIE_INFOS -> webClient.get().uri(moviesUrl + "/stream")
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .retrieve()
+                    .bodyToFlux(String.class)
+                    .next();
+        };
+    }
+
+    private Mono<byte[]> postMovieInfo(long id) {
+        var movieInfo = Map.of(
+                "movieInfoId", String.valueOf(id),
+                "name", "Load Test Movie " + id,
+                "year", 2000 + id % 25,
+                "cast", List.of("Christian Bale", "Michael Cane"),
+                "release_date", "2005-06-15");
+        return webClient.post().uri(movieInfosUrl)
+                .bodyValue(movieInfo)
+                .retrieve()
+                .bodyToMono(byte[].class);
+    }
+
+    private Mono<byte[]> postReview(long movieInfoId) {
+        return webClient.post().uri(reviewsUrl)
+                .bodyValue(review(movieInfoId))
+                .retrieve()
+                .bodyToMono(byte[].class);
+    }
+
+    // the response carries the new version as ETag, a later ETag may already have arrived from a concurrent PUT
+    private Mono<?> putReview(String reviewId, boolean ifMatch) {
+        var review = Map.of(
+                "comment", "Load test update " + System.nanoTime(),
+                "rating", ThreadLocalRandom.current().nextInt(0, 11) * 1.0);
+        return webClient.put().uri(reviewsUrl + "/{id}", reviewId)
+                .headers(headers -> {
+                    if (ifMatch) {
+                        headers.setIfMatch("\"" + reviewVersions.get(reviewId) + "\"");
+                    }
+                })
+                .bodyValue(review)
+                .retrieve()
+                .toBodilessEntity()
+                .doOnNext(response -> reviewVersions.merge(reviewId,
+                        Long.valueOf(response.getHeaders().getETag().replace("\"", "")), Math::max));
+    }
+
+    private static Map<String, Object> review(long movieInfoId) {
+        return Map.of(
+                "movieInfoId", movieInfoId,
+                "comment", "Load test review",
+                "rating", ThreadLocalRandom.current().nextInt(0, 11) * 1.0);
+    }
+
+    private long randomMovieId() {
+        return ThreadLocalRandom.current().nextLong(1, seededMovies + 1L);
+    }
+
+    private String randomReviewId() {
+        var ids = reviewIds;
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("The PUT endpoints update seeded reviews, set seedReviewsPerMovie above 0");
+        }
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
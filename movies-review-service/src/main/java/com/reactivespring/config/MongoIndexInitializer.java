@@ -0,0 +1,98 @@
+package com.reactivespring.config;
+
+import com.reactivespring.domain.Review;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Verifies on startup that the indexes declared on the documents exist with the declared keys and creates missing ones.
+ * Spring Data does not create annotated indexes unless auto-index-creation is switched on.
+ * With {@code mongo.indexes.ensureOnStartup} this happens before the web server starts, and startup fails if the
+ * indexes cannot be ensured within {@code mongo.indexes.timeout} or an index exists with other keys.
+ */
+@Component
+@Slf4j
+public class MongoIndexInitializer implements SmartInitializingSingleton {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(Review.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Value("${mongo.indexes.ensureOnStartup}")
+    private boolean ensureOnStartup;
+
+    @Value("${mongo.indexes.timeout}")
+    private Duration timeout;
+
+    public MongoIndexInitializer(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // all singletons exist but the web server has not started yet, no request reaches an unindexed collection
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!ensureOnStartup) {
+            return;
+        }
+        try {
+            ensureIndexes().block(timeout);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Ensuring Mongo indexes failed: " + e.getMessage(), e);
+        }
+    }
+
+    public Mono<Void> ensureIndexes() {
+        return Flux.fromIterable(INDEXED_DOCUMENTS)
+                .concatMap(this::ensureIndexes)
+                .then();
+    }
+
+    private Mono<Void> ensureIndexes(Class<?> documentClass) {
+        var resolver = IndexResolver.create(mongoTemplate.getConverter().getMappingContext());
+        var indexOps = mongoTemplate.indexOps(documentClass);
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(documentClass))
+                .flatMapMany(collection -> collection.listIndexes())
+                .collectMap(index -> index.getString("name"), index -> index.get("key", Document.class))
+                .flatMapMany(existing -> Flux.fromIterable(resolver.resolveIndexFor(documentClass))
+                        .concatMap(index -> {
+                            var name = index.getIndexOptions().getString("name");
+                            var keys = existing.get(name);
+                            if (keys == null) {
+                                log.info("Creating index {} on {}", name, documentClass.getSimpleName());
+                                return indexOps.ensureIndex(index);
+                            }
+                            if (!sameKeys(keys, index.getIndexKeys())) {
+                                return Mono.error(new IllegalStateException(String.format("Index %s on %s has keys %s instead of %s",
+                                        name, documentClass.getSimpleName(), keys.toJson(), index.getIndexKeys().toJson())));
+                            }
+                            log.info("Index {} on {} verified", name, documentClass.getSimpleName());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    // same fields in the same order; directions may come back as 1, 1L or 1.0 depending on who created the index
+    private static boolean sameKeys(Document existing, Document declared) {
+        if (!List.copyOf(existing.keySet()).equals(List.copyOf(declared.keySet()))) {
+            return false;
+        }
+        return declared.entrySet().stream().allMatch(key -> {
+            var existingValue = existing.get(key.getKey());
+            if (existingValue instanceof Number existingNumber && key.getValue() instanceof Number declaredNumber) {
+                return existingNumber.doubleValue() == declaredNumber.doubleValue();
+            }
+            return Objects.equals(existingValue, key.getValue());
+        });
+    }
+}
@@ -0,0 +1,20 @@
+package com.reactivespring.config;
+
+import com.reactivespring.exceptionHandler.GlobalErrorHandler;
+import com.reactivespring.logging.RequestLoggingProperties;
+import com.reactivespring.logging.SampledRequestLoggingFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RequestLoggingProperties.class)
+public class RequestLoggingConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "request-logging", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SampledRequestLoggingFilter sampledRequestLoggingFilter(RequestLoggingProperties properties) {
+        return new SampledRequestLoggingFilter(properties, GlobalErrorHandler::statusOf);
+    }
+}
@@ -6,12 +6,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+// serves findByMovieInfoId, findByMovieInfoIdIn and the top-N query sorted by rating
+@CompoundIndex(name = "movieInfoId_rating", def = "{'movieInfoId': 1, 'rating': -1}")
 public class Review {
 
     @Id
@@ -21,4 +24,10 @@ public class Review {
     private String comment;
     @Min(value = 0L, message = "rating.negative : rating is negative and please pass a non-negative value")
     private Double rating;
+    // incremented by every update, a PUT with If-Match only applies to the version the client has read
+    private Long version;
+
+    public Review(String reviewId, Long movieInfoId, String comment, Double rating) {
+        this(reviewId, movieInfoId, comment, rating, null);
+    }
 }
@@ -0,0 +1,43 @@
+package com.reactivespring.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one line of the bulk ingest response, in the order of the request lines
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReviewIngestResult {
+
+    public enum Status { CREATED, INVALID, FAILED }
+
+    // position of the review in the request, starting with 0
+    private long index;
+    private String reviewId;
+    private Status status;
+    // null unless INVALID or FAILED
+    private String error;
+    // the saved review, published to the review stream but not part of the response
+    @JsonIgnore
+    private Review review;
+
+    public static ReviewIngestResult created(Review review) {
+        return new ReviewIngestResult(0, review.getReviewId(), Status.CREATED, null, review);
+    }
+
+    public static ReviewIngestResult invalid(Review review, String error) {
+        return new ReviewIngestResult(0, review.getReviewId(), Status.INVALID, error, null);
+    }
+
+    public static ReviewIngestResult failed(Review review, String error) {
+        return new ReviewIngestResult(0, review.getReviewId(), Status.FAILED, error, null);
+    }
+
+    public ReviewIngestResult withIndex(long index) {
+        return new ReviewIngestResult(index, reviewId, status, error, review);
+    }
+}
@@ -0,0 +1,33 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// rating aggregates per movie, only reviews with a rating are counted
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document
+public class ReviewStats {
+
+    @Id
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    // number of ratings per whole rating value, "8" counts ratings from 8.0 up to 9.0 (exclusive)
+    private Map<String, Long> histogram = new TreeMap<>();
+
+    public double getAverage() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    public static ReviewStats empty(Long movieInfoId) {
+        return new ReviewStats(movieInfoId, 0, 0, new TreeMap<>());
+    }
+}
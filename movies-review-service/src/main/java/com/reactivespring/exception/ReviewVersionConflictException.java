@@ -0,0 +1,8 @@
+package com.reactivespring.exception;
+
+public class ReviewVersionConflictException extends RuntimeException {
+
+    public ReviewVersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.reactivespring.exception;
+
+public class ReviewWriteRejectedException extends RuntimeException {
+
+    public ReviewWriteRejectedException(String message) {
+        super(message);
+    }
+}
@@ -2,6 +2,8 @@ package com.reactivespring.exceptionHandler;
 
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
+import com.reactivespring.exception.ReviewVersionConflictException;
+import com.reactivespring.exception.ReviewWriteRejectedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.web.reactive.error.ErrorWebExceptionHandler;
 import org.springframework.core.io.buffer.DataBufferFactory;
@@ -19,17 +21,28 @@ public class GlobalErrorHandler implements ErrorWebExceptionHandler {
         DataBufferFactory dataBufferFactory = exchange.getResponse().bufferFactory();
         var errorMessage = dataBufferFactory.wrap(ex.getMessage().getBytes());
 
+        exchange.getResponse().setStatusCode(statusOf(ex));
+        return  exchange.getResponse().writeWith(Mono.just(errorMessage));
+    }
+
+    // also used by the request logging, which sees the error before this handler has answered it
+    public static HttpStatus statusOf(Throwable ex) {
         if(ex instanceof ReviewDataException){
-            exchange.getResponse().setStatusCode(HttpStatus.BAD_REQUEST);
-            return  exchange.getResponse().writeWith(Mono.just(errorMessage));
+            return HttpStatus.BAD_REQUEST;
         }
 
         if(ex instanceof ReviewNotFoundException){
-            exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
-            return  exchange.getResponse().writeWith(Mono.just(errorMessage));
+            return HttpStatus.NOT_FOUND;
         }
 
-        exchange.getResponse().setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
-        return  exchange.getResponse().writeWith(Mono.just(errorMessage));
+        if(ex instanceof ReviewVersionConflictException){
+            return HttpStatus.PRECONDITION_FAILED;
+        }
+
+        if(ex instanceof ReviewWriteRejectedException){
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+
+        return HttpStatus.INTERNAL_SERVER_ERROR;
     }
 }
@@ -1,13 +1,24 @@
 package com.reactivespring.handler;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
+import com.reactivespring.exception.ReviewVersionConflictException;
+import com.reactivespring.ingest.ReviewIngestService;
+import com.reactivespring.ingest.ReviewWriteBehind;
+import com.reactivespring.logging.SignalTracing;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.stats.ReviewStatsService;
+import com.reactivespring.stream.ReviewBroadcaster;
+import com.reactivespring.util.PageCursor;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
@@ -15,8 +26,12 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Component
@@ -28,25 +43,84 @@ public class ReviewHandler {
 
     private final ReviewReactiveRepository repo;
 
-    private Sinks.Many<Review> reviewSink = Sinks.many().replay().latest();
+    private final ReviewBroadcaster reviewBroadcaster;
 
-    public ReviewHandler(ReviewReactiveRepository repo) {
+    private final ReviewStatsService reviewStatsService;
+
+    private final ReviewIngestService reviewIngestService;
+
+    private final ReviewWriteBehind reviewWriteBehind;
+
+    @Value("${reviews.pagination.defaultPageSize}")
+    private int defaultPageSize;
+
+    @Value("${reviews.pagination.maxPageSize}")
+    private int maxPageSize;
+
+    @Value("${reviews.bulk.batchSize}")
+    private int bulkBatchSize;
+
+    @Value("${reviews.bulk.maxDelay}")
+    private Duration bulkMaxDelay;
+
+    @Value("${reviews.bulk.concurrency}")
+    private int bulkConcurrency;
+
+    public ReviewHandler(ReviewReactiveRepository repo, ReviewBroadcaster reviewBroadcaster, ReviewStatsService reviewStatsService,
+                         ReviewIngestService reviewIngestService, ReviewWriteBehind reviewWriteBehind) {
         this.repo = repo;
+        this.reviewBroadcaster = reviewBroadcaster;
+        this.reviewStatsService = reviewStatsService;
+        this.reviewIngestService = reviewIngestService;
+        this.reviewWriteBehind = reviewWriteBehind;
     }
 
     public Mono<ServerResponse> addReview(ServerRequest request) {
-        return request.bodyToMono(Review.class).log()
+        return request.bodyToMono(Review.class)
+                .transform(SignalTracing.traced("ReviewHandler.addReview"))
                 .doOnNext(this::validate)
-                .flatMap(repo::save)
-                .doOnNext(savedReview->reviewSink.emitNext(savedReview, Sinks.EmitFailureHandler.FAIL_FAST))
+                .flatMap(review -> reviewWriteBehind.save(review, this::saveReview))
+                .doOnNext(reviewBroadcaster::publish)
                 .flatMap(ServerResponse.status(HttpStatus.CREATED)::bodyValue);
     }
 
-    private void validate(Review review) {
+    private Mono<Review> saveReview(Review review) {
+        // the version belongs to the server, a client must not reset it to pass a later If-Match
+        review.setVersion(null);
+        if (review.getReviewId() == null) {
+            return repo.save(review)
+                    .flatMap(savedReview -> reviewStatsService.reviewAdded(savedReview).thenReturn(savedReview));
+        }
+        // a POST with a reviewId replaces the review with that id, whose rating must not stay in the stats
+        return repo.replaceReview(review)
+                .flatMap(previous -> {
+                    review.setVersion(previous.getVersion() == null ? 1 : previous.getVersion() + 1);
+                    return reviewStatsService.reviewReplaced(previous, review).thenReturn(review);
+                })
+                .switchIfEmpty(Mono.defer(() -> {
+                    review.setVersion(1L);
+                    return reviewStatsService.reviewAdded(review).thenReturn(review);
+                }));
+    }
+
+    // one review per NDJSON line in, one result per line out in the same order; the saved reviews reach the stream in that order too
+    public Mono<ServerResponse> addReviews(ServerRequest request) {
+        var results = reviewIngestService.ingest(request.bodyToFlux(Review.class), bulkBatchSize, bulkMaxDelay, bulkConcurrency)
+                .doOnNext(result -> {
+                    if (result.getStatus() == ReviewIngestResult.Status.CREATED) {
+                        reviewBroadcaster.publish(result.getReview());
+                    }
+                });
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(results, ReviewIngestResult.class);
+    }
+
+    void validate(Review review) {
 
         var constraintViolations = validator.validate(review);
-        log.info("constraintViolations : {}" , constraintViolations);
         if(constraintViolations.size() > 0) {
+            log.debug("constraintViolations : {}" , constraintViolations);
             var errorMessage = constraintViolations
                     .stream()
                     .map(ConstraintViolation::getMessage)
@@ -59,40 +133,183 @@ public class ReviewHandler {
     }
 
     public Mono<ServerResponse> getReviews(ServerRequest request) {
+        var movieInfoIds = request.queryParam("movieInfoIds");
+        if (movieInfoIds.isPresent()) {
+            return getReviewsForMovieInfos(request, movieInfoIds.get());
+        }
         var moviesInfoId = request.queryParam("movieInfoId");
         if (moviesInfoId.isPresent()) {
-            return repo.findByMovieInfoId(Long.valueOf(moviesInfoId.get())).collectList().flatMap(reviews -> ServerResponse.ok().body(Flux.fromIterable(reviews), Review.class));
-        } else {
-            var reviewsFlux = repo.findAll();
-            return ServerResponse.ok().body(reviewsFlux, Review.class);
+            Long movieInfoId;
+            Optional<Integer> top;
+            try {
+                movieInfoId = Long.valueOf(moviesInfoId.get());
+                top = request.queryParam("top").map(Integer::valueOf);
+            } catch (NumberFormatException e) {
+                return Mono.error(new ReviewDataException("movieInfoId and top must be numbers"));
+            }
+            // top=N returns the N best rated reviews of the movie
+            var reviews = top
+                    .map(n -> repo.findByMovieInfoIdOrderByRatingDesc(movieInfoId, Limit.of(Math.min(Math.max(n, 1), maxPageSize))))
+                    .orElseGet(() -> repo.findByMovieInfoId(movieInfoId));
+            return ServerResponse.ok()
+                    .contentType(streamingContentType(request))
+                    .body(reviews, Review.class);
         }
+        return getReviewPage(request);
     }
 
+    // reviews of several movies with a single $in query, grouping is left to the caller
+    private Mono<ServerResponse> getReviewsForMovieInfos(ServerRequest request, String movieInfoIds) {
+        List<Long> ids;
+        try {
+            ids = Arrays.stream(movieInfoIds.split(","))
+                    .map(String::trim)
+                    .filter(id -> !id.isEmpty())
+                    .map(Long::valueOf)
+                    .distinct()
+                    .toList();
+        } catch (NumberFormatException e) {
+            return Mono.error(new ReviewDataException("movieInfoIds must be a comma separated list of numbers"));
+        }
+        if (ids.size() > maxPageSize) {
+            return Mono.error(new ReviewDataException("At most " + maxPageSize + " movieInfoIds are allowed per request"));
+        }
+        return ServerResponse.ok()
+                .contentType(streamingContentType(request))
+                .body(repo.findByMovieInfoIdIn(ids), Review.class);
+    }
+
+    // keyset pagination on _id, one extra element is fetched to decide whether a next page exists
+    private Mono<ServerResponse> getReviewPage(ServerRequest request) {
+        int pageLimit;
+        Flux<Review> reviewsFlux;
+        try {
+            var limit = request.queryParam("pageSize")
+                    .map(Integer::valueOf)
+                    .orElse(defaultPageSize);
+            if (limit < 1) {
+                return Mono.error(new ReviewDataException("pageSize must be a positive value"));
+            }
+            pageLimit = Math.min(limit, maxPageSize);
+            reviewsFlux = request.queryParam("cursor")
+                    .map(cursor -> repo.findReviewsAfter(PageCursor.decode(cursor), pageLimit + 1))
+                    .orElseGet(() -> repo.findAllByOrderByReviewIdAsc(Limit.of(pageLimit + 1)));
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ReviewDataException(e.getMessage()));
+        }
+        return reviewsFlux
+                .collectList()
+                .flatMap(reviews -> {
+                    var response = ServerResponse.ok().contentType(streamingContentType(request));
+                    if (reviews.size() > pageLimit) {
+                        reviews = reviews.subList(0, pageLimit);
+                        response.header(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode(reviews.get(pageLimit - 1).getReviewId()));
+                    }
+                    return response.body(Flux.fromIterable(reviews), Review.class);
+                });
+    }
+
+    // JSON arrays are written element by element as well, NDJSON additionally lets clients parse each line on arrival
+    private MediaType streamingContentType(ServerRequest request) {
+        return request.headers().accept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype)
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+    }
+
+    // one findAndModify, an If-Match header with the version of the review turns it into a conditional update
     public Mono<ServerResponse> updateReview(ServerRequest request) {
-        var existingReview = repo.findById(request.pathVariable("id"))
-               .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id: " + request.pathVariable("id"))));
-        return existingReview.flatMap(review -> {
-            return request.bodyToMono(Review.class).map(reqReview -> {
-                        review.setComment(reqReview.getComment());
-                        review.setRating(reqReview.getRating());
-                return review;
-            })
-            .flatMap(repo::save)
-            .flatMap(savedResponse-> ServerResponse.ok().body(Mono.just(savedResponse), Review.class));
-        });//.switchIfEmpty(ServerResponse.notFound().build());
+        var id = request.pathVariable("id");
+        Long expectedVersion;
+        try {
+            expectedVersion = expectedVersion(request);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ReviewDataException(e.getMessage()));
+        }
+        return request.bodyToMono(Review.class)
+                .flatMap(reqReview -> repo.updateCommentAndRating(id, reqReview.getComment(), reqReview.getRating(), expectedVersion)
+                        .switchIfEmpty(Mono.defer(() -> notUpdated(id, expectedVersion)))
+                        .flatMap(previous -> {
+                            var savedReview = new Review(id, previous.getMovieInfoId(), reqReview.getComment(), reqReview.getRating(),
+                                    previous.getVersion() == null ? 1 : previous.getVersion() + 1);
+                            return reviewStatsService.reviewUpdated(previous.getMovieInfoId(), previous.getRating(), savedReview.getRating())
+                                    .thenReturn(savedReview);
+                        }))
+                .flatMap(savedReview -> ServerResponse.ok()
+                        .eTag(String.valueOf(savedReview.getVersion()))
+                        .bodyValue(savedReview));
+    }
+
+    private Long expectedVersion(ServerRequest request) {
+        var ifMatch = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(ifMatch.replaceFirst("^W/", "").replace("\"", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be the version of the review");
+        }
+    }
+
+    // the update matched nothing, a second lookup is only needed to tell a conflict from a missing review
+    private Mono<Review> notUpdated(String id, Long expectedVersion) {
+        var notFound = new ReviewNotFoundException("Review not found for the given Review id: " + id);
+        if (expectedVersion == null) {
+            return Mono.error(notFound);
+        }
+        return repo.existsById(id)
+                .flatMap(exists -> Mono.error(exists
+                        ? new ReviewVersionConflictException("Review " + id + " has been changed, expected version: " + expectedVersion)
+                        : notFound));
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
         var id = request.pathVariable("id");
-        var existingReview = repo.findById(id);
-        return existingReview
-                .flatMap(review -> repo.deleteById(id))
+        return repo.deleteByReviewId(id)
+                .switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found for the given Review id: " + id)))
+                .flatMap(reviewStatsService::reviewDeleted)
                 .then(ServerResponse.noContent().build());
     }
 
-    public Mono<ServerResponse> getReviewsStream(ServerRequest serverRequest) {
+    // DELETE /v1/reviews?movieInfoId= removes all reviews of a movie server-side and reports how many there were
+    public Mono<ServerResponse> deleteReviews(ServerRequest request) {
+        var movieInfoIdParam = request.queryParam("movieInfoId");
+        if (movieInfoIdParam.isEmpty()) {
+            return Mono.error(new ReviewDataException("movieInfoId must be present"));
+        }
+        Long movieInfoId;
+        try {
+            movieInfoId = Long.valueOf(movieInfoIdParam.get());
+        } catch (NumberFormatException e) {
+            return Mono.error(new ReviewDataException("movieInfoId must be a number"));
+        }
+        return repo.deleteByMovieInfoId(movieInfoId)
+                .flatMap(deleted -> reviewStatsService.allReviewsDeleted(movieInfoId, repo.findByMovieInfoId(movieInfoId))
+                        .then(ServerResponse.ok().bodyValue(Map.of("deleted", deleted))));
+    }
+
+    public Mono<ServerResponse> getReviewStats(ServerRequest request) {
+        Long movieInfoId;
+        try {
+            movieInfoId = Long.valueOf(request.pathVariable("movieInfoId"));
+        } catch (NumberFormatException e) {
+            return Mono.error(new ReviewDataException("movieInfoId must be a number"));
+        }
+        return reviewStatsService.getStats(movieInfoId)
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
+        Long movieInfoId;
+        try {
+            movieInfoId = request.queryParam("movieInfoId")
+                    .map(Long::valueOf)
+                    .orElse(null);
+        } catch (NumberFormatException e) {
+            return Mono.error(new ReviewDataException("movieInfoId must be a number"));
+        }
         return ServerResponse.ok()
                 .contentType(MediaType.APPLICATION_NDJSON)
-                .body(Flux.just(reviewSink), Review.class);
+                .body(reviewBroadcaster.subscribe(movieInfoId), Review.class);
     }
 }
@@ -0,0 +1,112 @@
+package com.reactivespring.ingest;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.stats.ReviewStatsService;
+import jakarta.validation.ConstraintViolation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes reviews in batches: every batch is validated, inserted with one unordered bulk write
+ * and applied to the {@link com.reactivespring.domain.ReviewStats} with one more.
+ * The reviews are committed before the stats write, so a failed stats write does not fail them: it is logged
+ * and counted in {@code reviews.stats.failures}.
+ */
+@Service
+@Slf4j
+public class ReviewIngestService {
+
+    private final ReviewReactiveRepository repo;
+
+    private final ReviewStatsService reviewStatsService;
+
+    private final Validator validator;
+
+    private final Counter statsFailures;
+
+    @Autowired
+    public ReviewIngestService(ReviewReactiveRepository repo, ReviewStatsService reviewStatsService, Validator validator,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        this(repo, reviewStatsService, validator, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    public ReviewIngestService(ReviewReactiveRepository repo, ReviewStatsService reviewStatsService, Validator validator,
+                               MeterRegistry meterRegistry) {
+        this.statsFailures = meterRegistry.counter("reviews.stats.failures");
+        this.repo = repo;
+        this.reviewStatsService = reviewStatsService;
+        this.validator = validator;
+    }
+
+    /**
+     * At most {@code concurrency} batches of up to {@code batchSize} are in flight, the reviews are only requested as fast
+     * as they complete. A batch that has not filled up within {@code maxDelay} is written anyway.
+     * Emits one result per review in the order of the input.
+     */
+    public Flux<ReviewIngestResult> ingest(Flux<Review> reviews, int batchSize, Duration maxDelay, int concurrency) {
+        return reviews
+                .index()
+                .bufferTimeout(batchSize, maxDelay, true)
+                .flatMapSequential(batch -> ingestBatch(batch.stream().map(Tuple2::getT2).toList())
+                        .index()
+                        .map(result -> result.getT2().withIndex(batch.get(result.getT1().intValue()).getT1())), concurrency, 1);
+    }
+
+    // emits one result per review in the order of the batch, once the stats of the batch have been written
+    public Flux<ReviewIngestResult> ingestBatch(List<Review> reviews) {
+        var results = new ReviewIngestResult[reviews.size()];
+        var valid = new ArrayList<Review>(reviews.size());
+        var validIndexes = new ArrayList<Integer>(reviews.size());
+        for (int i = 0; i < reviews.size(); i++) {
+            var violations = validator.validate(reviews.get(i));
+            if (violations.isEmpty()) {
+                valid.add(reviews.get(i));
+                validIndexes.add(i);
+            } else {
+                results[i] = ReviewIngestResult.invalid(reviews.get(i), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(",")));
+            }
+        }
+        var written = valid.isEmpty()
+                ? Flux.<ReviewIngestResult>empty()
+                : repo.bulkInsert(valid);
+        return written
+                .index()
+                .doOnNext(result -> results[validIndexes.get(result.getT1().intValue())] = result.getT2())
+                .map(Tuple2::getT2)
+                .filter(result -> result.getStatus() == ReviewIngestResult.Status.CREATED)
+                .map(ReviewIngestResult::getReview)
+                .collectList()
+                .flatMap(this::statsAdded)
+                .thenMany(Flux.fromArray(results));
+    }
+
+    // the reviews are already committed, failing them would make the caller retry and insert them twice
+    private Mono<Void> statsAdded(List<Review> reviews) {
+        return reviewStatsService.reviewsAdded(reviews)
+                .onErrorResume(e -> {
+                    statsFailures.increment();
+                    log.error("Stats not updated for {} committed reviews: {}", reviews.size(),
+                            reviews.stream().map(Review::getReviewId).toList(), e);
+                    return Mono.empty();
+                });
+    }
+}
@@ -0,0 +1,150 @@
+package com.reactivespring.ingest;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
+import com.reactivespring.exception.ReviewDataException;
+import com.reactivespring.exception.ReviewWriteRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces the inserts of concurrent single POSTs: queued reviews are written with one
+ * {@link ReviewIngestService#ingestBatch(List)} once {@code maxBatchSize} reviews are waiting or {@code maxDelay} has
+ * passed. A caller only completes after the bulk insert holding its review has been acknowledged, with its own review
+ * or error. The queue is bounded, a review that does not fit is rejected right away.
+ * A cancelled caller does not take its review out of the queue, it is written anyway.
+ */
+@Component
+@Slf4j
+public class ReviewWriteBehind {
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final ReviewIngestService reviewIngestService;
+
+    private final boolean enabled;
+
+    private final ArrayBlockingQueue<PendingReview> queue;
+
+    private final Sinks.Many<PendingReview> pendingReviews;
+
+    private final CompletableFuture<Void> terminated;
+
+    private final DistributionSummary batchSize;
+
+    private final Counter rejected;
+
+    @Autowired
+    public ReviewWriteBehind(ReviewIngestService reviewIngestService,
+                             @Value("${reviews.writeBehind.enabled}") boolean enabled,
+                             @Value("${reviews.writeBehind.maxBatchSize}") int maxBatchSize,
+                             @Value("${reviews.writeBehind.maxDelay}") Duration maxDelay,
+                             @Value("${reviews.writeBehind.queueCapacity}") int queueCapacity,
+                             @Value("${reviews.writeBehind.concurrency}") int concurrency,
+                             ObjectProvider<MeterRegistry> meterRegistry) {
+        this(reviewIngestService, enabled, maxBatchSize, maxDelay, queueCapacity, concurrency,
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    public ReviewWriteBehind(ReviewIngestService reviewIngestService, boolean enabled, int maxBatchSize, Duration maxDelay,
+                             int queueCapacity, int concurrency, MeterRegistry meterRegistry) {
+        this.reviewIngestService = reviewIngestService;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.pendingReviews = Sinks.many().unicast().onBackpressureBuffer(queue);
+        this.batchSize = DistributionSummary.builder("reviews.write.behind.batch.size").register(meterRegistry);
+        this.rejected = meterRegistry.counter("reviews.write.behind.rejected");
+        Gauge.builder("reviews.write.behind.queued", queue, ArrayBlockingQueue::size).register(meterRegistry);
+        if (enabled) {
+            // fair backpressure: the queue is only drained as fast as the bulk inserts in flight complete
+            this.terminated = pendingReviews.asFlux()
+                    .bufferTimeout(maxBatchSize, maxDelay, true)
+                    .flatMap(this::flush, concurrency)
+                    .then()
+                    .toFuture();
+        } else {
+            this.terminated = CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Saves the review with {@code direct} when write-behind is disabled or the review brings its own id,
+     * which {@code direct} replaces while the bulk insert would fail on an existing review.
+     * The review is expected to be valid.
+     */
+    public Mono<Review> save(Review review, Function<Review, Mono<Review>> direct) {
+        if (!enabled || review.getReviewId() != null) {
+            return direct.apply(review);
+        }
+        return Mono.create(sink -> {
+            if (!offer(new PendingReview(review, sink))) {
+                rejected.increment();
+                sink.error(new ReviewWriteRejectedException("Too many reviews waiting to be written, please retry later"));
+            }
+        });
+    }
+
+    // emissions are serialized here, concurrent requests would otherwise fail with FAIL_NON_SERIALIZED
+    private synchronized boolean offer(PendingReview pendingReview) {
+        return pendingReviews.tryEmitNext(pendingReview).isSuccess();
+    }
+
+    // never fails, a failed bulk insert fails the callers of the batch but not the following batches
+    private Mono<Void> flush(List<PendingReview> batch) {
+        batchSize.record(batch.size());
+        return reviewIngestService.ingestBatch(batch.stream().map(PendingReview::review).toList())
+                .collectList()
+                .doOnNext(results -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        complete(batch.get(i).sink(), results.get(i));
+                    }
+                })
+                .doOnError(e -> batch.forEach(pendingReview -> pendingReview.sink().error(e)))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private static void complete(MonoSink<Review> sink, ReviewIngestResult result) {
+        switch (result.getStatus()) {
+            case CREATED -> sink.success(result.getReview());
+            case INVALID -> sink.error(new ReviewDataException(result.getError()));
+            case FAILED -> sink.error(new DataIntegrityViolationException(result.getError()));
+        }
+    }
+
+    // reviews still queued are written before the repository goes away
+    @PreDestroy
+    void close() {
+        synchronized (this) {
+            pendingReviews.tryEmitComplete();
+        }
+        try {
+            terminated.get(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("Queued reviews not written within {}", SHUTDOWN_TIMEOUT, e);
+        }
+    }
+
+    private record PendingReview(Review review, MonoSink<Review> sink) {
+    }
+}
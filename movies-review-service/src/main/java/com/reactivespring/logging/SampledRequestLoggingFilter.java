@@ -0,0 +1,118 @@
+package com.reactivespring.logging;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * One structured log line per sampled request instead of logging every request.
+ * Requests answered with 5xx are always logged, slower requests unless their route's rate is 0.
+ */
+@Slf4j
+public class SampledRequestLoggingFilter implements WebFilter, Ordered {
+
+    private final double sampleRate;
+
+    private final List<RouteRate> routes;
+
+    private final long slowThresholdNanos;
+
+    private final Function<Throwable, HttpStatusCode> errorStatus;
+
+    public SampledRequestLoggingFilter(RequestLoggingProperties properties) {
+        this(properties, error -> HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    // errorStatus tells the status the exception handler will answer an error with, the filter sees the error before it
+    public SampledRequestLoggingFilter(RequestLoggingProperties properties, Function<Throwable, HttpStatusCode> errorStatus) {
+        this.sampleRate = properties.getSampleRate();
+        this.routes = properties.getRoutes().entrySet().stream()
+                .map(route -> new RouteRate(PathPatternParser.defaultInstance.parse(route.getKey()), route.getValue()))
+                .toList();
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+        this.errorStatus = errorStatus;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!log.isInfoEnabled()) {
+            return chain.filter(exchange);
+        }
+        var start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnError(error -> log(exchange, SignalType.ON_ERROR, errorStatus(error), System.nanoTime() - start))
+                .doFinally(signal -> {
+                    if (signal != SignalType.ON_ERROR) {
+                        var statusCode = exchange.getResponse().getStatusCode();
+                        log(exchange, signal, statusCode == null ? 200 : statusCode.value(), System.nanoTime() - start);
+                    }
+                });
+    }
+
+    // errors are turned into a response by the exception handlers after this filter
+    int errorStatus(Throwable error) {
+        // ResponseStatusExceptions are answered by Spring's own handler, which runs before any custom one
+        if (error instanceof ErrorResponse errorResponse) {
+            return errorResponse.getStatusCode().value();
+        }
+        return errorStatus.apply(error).value();
+    }
+
+    private void log(ServerWebExchange exchange, SignalType signal, int status, long durationNanos) {
+        var request = exchange.getRequest();
+        if (!shouldLog(request.getPath().pathWithinApplication(), status, durationNanos)) {
+            return;
+        }
+        log.info("method={} path={} status={} durationMs={} signal={}", request.getMethod(), request.getPath().value(),
+                status, TimeUnit.NANOSECONDS.toMillis(durationNanos), signal);
+    }
+
+    boolean shouldLog(PathContainer path, int status, long durationNanos) {
+        if (status >= 500) {
+            return true;
+        }
+        var routeRate = routeRate(path);
+        // a route with rate 0 is switched off even when slow, every subscription of a long-lived stream outlasts the threshold
+        if (routeRate != null && routeRate <= 0) {
+            return false;
+        }
+        if (durationNanos >= slowThresholdNanos) {
+            return true;
+        }
+        var rate = routeRate == null ? sampleRate : routeRate;
+        return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private Double routeRate(PathContainer path) {
+        for (var route : routes) {
+            if (route.pattern().matches(path)) {
+                return route.rate();
+            }
+        }
+        return null;
+    }
+
+    // outermost, the duration includes every other filter
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private record RouteRate(PathPattern pattern, double rate) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.reactivespring.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Signal level tracing (onSubscribe, request, onNext, ...) for selected pipelines. Off unless the logger
+ * {@value #CATEGORY} is set to TRACE, e.g. at runtime via POST /actuator/loggers/com.reactivespring.signals.
+ * The level is checked when the pipeline is assembled, while disabled no operator is added.
+ */
+public final class SignalTracing {
+
+    public static final String CATEGORY = "com.reactivespring.signals";
+
+    private static final Logger log = LoggerFactory.getLogger(CATEGORY);
+
+    private SignalTracing() {
+    }
+
+    public static <T> Function<Mono<T>, Mono<T>> traced(String name) {
+        return source -> log.isTraceEnabled() ? source.log(CATEGORY + "." + name, Level.FINEST) : source;
+    }
+}
@@ -0,0 +1,14 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface ReviewBulkWrites {
+
+    // inserts the reviews with a single unordered bulk write, an existing reviewId fails only its own review;
+    // emits one result per review in the order of the list
+    Flux<ReviewIngestResult> bulkInsert(List<Review> reviews);
+}
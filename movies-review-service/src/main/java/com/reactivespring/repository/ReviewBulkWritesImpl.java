@@ -0,0 +1,78 @@
+package com.reactivespring.repository;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class ReviewBulkWritesImpl implements ReviewBulkWrites {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    ReviewBulkWritesImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Flux<ReviewIngestResult> bulkInsert(List<Review> reviews) {
+        var bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Review.class);
+        for (var review : reviews) {
+            // the id is assigned here, the response has to report it
+            if (review.getReviewId() == null) {
+                review.setReviewId(new ObjectId().toHexString());
+            }
+            review.setVersion(null);
+            bulkOperations.insert(review);
+        }
+        return bulkOperations.execute()
+                .map(result -> results(reviews, Map.of()))
+                .onErrorResume(e -> {
+                    var bulkWriteException = bulkWriteException(e);
+                    if (bulkWriteException == null) {
+                        return Mono.just(failed(reviews, e));
+                    }
+                    return Mono.just(results(reviews, bulkWriteException.getWriteErrors().stream()
+                            .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))));
+                })
+                .flatMapIterable(Function.identity());
+    }
+
+    // e.g. a timeout or a lost connection, no per-item outcome is known, so the whole batch is reported as failed
+    private static List<ReviewIngestResult> failed(List<Review> reviews, Throwable e) {
+        return reviews.stream()
+                .map(review -> ReviewIngestResult.failed(review, String.valueOf(e.getMessage())))
+                .toList();
+    }
+
+    private static List<ReviewIngestResult> results(List<Review> reviews, Map<Integer, String> errors) {
+        var results = new ArrayList<ReviewIngestResult>(reviews.size());
+        for (int i = 0; i < reviews.size(); i++) {
+            var error = errors.get(i);
+            results.add(error != null
+                    ? ReviewIngestResult.failed(reviews.get(i), error)
+                    : ReviewIngestResult.created(reviews.get(i)));
+        }
+        return results;
+    }
+
+    // the exception translation wraps the driver exception, e.g. into a DuplicateKeyException
+    private static MongoBulkWriteException bulkWriteException(Throwable e) {
+        for (var cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoBulkWriteException bulkWriteException) {
+                return bulkWriteException;
+            }
+        }
+        return null;
+    }
+}
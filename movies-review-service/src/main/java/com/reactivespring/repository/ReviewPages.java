@@ -0,0 +1,11 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.util.PageCursor;
+import reactor.core.publisher.Flux;
+
+public interface ReviewPages {
+
+    // the next page after the cursor in _id order, Strings sort before ObjectIds
+    Flux<Review> findReviewsAfter(PageCursor cursor, int limit);
+}
@@ -1,9 +1,25 @@
 package com.reactivespring.repository;
 
 import com.reactivespring.domain.Review;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
+import java.util.Collection;
+
+public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String>, ReviewUpdates, ReviewBulkWrites, ReviewPages {
     Flux<Review> findByMovieInfoId(Long movieInfoId);
+
+    Flux<Review> findByMovieInfoIdIn(Collection<Long> movieInfoIds);
+
+    Flux<Review> findByMovieInfoIdOrderByRatingDesc(Long movieInfoId, Limit limit);
+
+    Flux<Review> findAllByOrderByReviewIdAsc(Limit limit);
+
+    // findAndRemove, emits the deleted review (its rating is needed for the stats) or nothing if there was none
+    Mono<Review> deleteByReviewId(String reviewId);
+
+    // a single delete command on the server, the reviews are not loaded
+    Mono<Long> deleteByMovieInfoId(Long movieInfoId);
 }
@@ -0,0 +1,18 @@
+package com.reactivespring.repository;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface ReviewStatsIncrements {
+
+    // atomically adds the deltas to the stats of the movie, creating them on first use
+    Mono<Void> increment(Long movieInfoId, long count, double sum, Map<String, Long> histogram);
+
+    // the same for several movies with a single unordered bulk write
+    Mono<Void> incrementAll(Collection<Delta> deltas);
+
+    record Delta(Long movieInfoId, long count, double sum, Map<String, Long> histogram) {
+    }
+}
@@ -0,0 +1,49 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.ReviewStats;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class ReviewStatsIncrementsImpl implements ReviewStatsIncrements {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    ReviewStatsIncrementsImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // a single upsert with $inc, concurrent review changes never overwrite each other
+    @Override
+    public Mono<Void> increment(Long movieInfoId, long count, double sum, Map<String, Long> histogram) {
+        return mongoTemplate.upsert(query(where("_id").is(movieInfoId)), update(count, sum, histogram), ReviewStats.class)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> incrementAll(Collection<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return Mono.empty();
+        }
+        var bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ReviewStats.class);
+        deltas.forEach(delta -> bulkOperations.upsert(query(where("_id").is(delta.movieInfoId())),
+                update(delta.count(), delta.sum(), delta.histogram())));
+        return bulkOperations.execute()
+                .then();
+    }
+
+    private static Update update(long count, double sum, Map<String, Long> histogram) {
+        var update = new Update()
+                .inc("count", count)
+                .inc("sum", sum);
+        histogram.forEach((bucket, delta) -> update.inc("histogram." + bucket, delta));
+        return update;
+    }
+}
@@ -0,0 +1,15 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import reactor.core.publisher.Mono;
+
+public interface ReviewUpdates {
+
+    // atomically sets comment and rating and increments the version, emits the review as it was before the update;
+    // empty if there is no review with the id or, with an expected version, it has been changed in the meantime
+    Mono<Review> updateCommentAndRating(String reviewId, String comment, Double rating, Long expectedVersion);
+
+    // atomically replaces the fields of the review with its id or inserts it, increments the version either way;
+    // emits the review it replaced, empty if it was inserted
+    Mono<Review> replaceReview(Review review);
+}
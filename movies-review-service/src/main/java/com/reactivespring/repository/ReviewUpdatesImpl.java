@@ -0,0 +1,55 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+class ReviewUpdatesImpl implements ReviewUpdates {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    ReviewUpdatesImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // a single findAndModify instead of findById and save, the previous rating is returned for the stats delta
+    @Override
+    public Mono<Review> updateCommentAndRating(String reviewId, String comment, Double rating, Long expectedVersion) {
+        var update = new Update()
+                .set("comment", comment)
+                .set("rating", rating)
+                .inc("version", 1);
+        return mongoTemplate.findAndModify(query(versioned(reviewId, expectedVersion)), update,
+                FindAndModifyOptions.options().returnNew(false), Review.class);
+    }
+
+    // an upsert instead of save, the replaced review is needed to take its rating out of the stats;
+    // the stored version is incremented, never taken from the request
+    @Override
+    public Mono<Review> replaceReview(Review review) {
+        var update = new Update()
+                .set("movieInfoId", review.getMovieInfoId())
+                .set("comment", review.getComment())
+                .set("rating", review.getRating())
+                .inc("version", 1);
+        return mongoTemplate.findAndModify(query(where("_id").is(review.getReviewId())), update,
+                FindAndModifyOptions.options().upsert(true).returnNew(false), Review.class);
+    }
+
+    // reviews written before versioning have no version field, they count as version 0
+    private static Criteria versioned(String reviewId, Long expectedVersion) {
+        var criteria = where("_id").is(reviewId);
+        if (expectedVersion == null) {
+            return criteria;
+        }
+        return expectedVersion == 0
+                ? criteria.and("version").in(0L, null)
+                : criteria.and("version").is(expectedVersion);
+    }
+}
@@ -3,9 +3,11 @@ package com.reactivespring.router;
 import com.reactivespring.handler.ReviewHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerResponse;
 
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
 import static org.springframework.web.reactive.function.server.RequestPredicates.path;
 import static org.springframework.web.reactive.function.server.RouterFunctions.route;
 
@@ -16,10 +18,13 @@ public class ReviewRouter {
         return route()
                 .nest(path("/v1/reviews"), builder -> builder
                         .POST("", reviewHandler::addReview)
+                        .POST("/bulk", contentType(MediaType.APPLICATION_NDJSON), reviewHandler::addReviews)
                         .GET("", reviewHandler::getReviews)
                         .PUT("/{id}", reviewHandler::updateReview)
+                        .DELETE("", reviewHandler::deleteReviews)
                         .DELETE("/{id}", reviewHandler::deleteReview)
-                        .GET("/stream", reviewHandler::getReviewsStream))
+                        .GET("/stream", reviewHandler::getReviewsStream)
+                        .GET("/stats/{movieInfoId}", reviewHandler::getReviewStats))
                 .GET("/v1/helloworld", (request -> ServerResponse.ok().bodyValue("helloworld")))
                 .build();
     }
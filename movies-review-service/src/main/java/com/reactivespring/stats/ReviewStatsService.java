@@ -0,0 +1,120 @@
+package com.reactivespring.stats;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.repository.ReviewStatsIncrements;
+import com.reactivespring.repository.ReviewStatsRepository;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keeps {@link ReviewStats} up to date by applying the rating delta of every review change,
+ * so reading the stats of a movie never has to scan its reviews.
+ */
+@Service
+public class ReviewStatsService {
+
+    private final ReviewStatsRepository reviewStatsRepository;
+
+    public ReviewStatsService(ReviewStatsRepository reviewStatsRepository) {
+        this.reviewStatsRepository = reviewStatsRepository;
+    }
+
+    public Mono<ReviewStats> getStats(Long movieInfoId) {
+        return reviewStatsRepository.findById(movieInfoId)
+                .defaultIfEmpty(ReviewStats.empty(movieInfoId));
+    }
+
+    public Mono<Void> reviewAdded(Review review) {
+        return applyDelta(review.getMovieInfoId(), null, review.getRating());
+    }
+
+    // one stats write for all reviews of a batch, whatever the number of movies they belong to
+    public Mono<Void> reviewsAdded(List<Review> reviews) {
+        var deltas = new HashMap<Long, ReviewStatsIncrements.Delta>();
+        for (var review : reviews) {
+            if (review.getMovieInfoId() == null || review.getRating() == null) {
+                continue;
+            }
+            deltas.merge(review.getMovieInfoId(),
+                    new ReviewStatsIncrements.Delta(review.getMovieInfoId(), 1, review.getRating(), Map.of(bucket(review.getRating()), 1L)),
+                    ReviewStatsService::merge);
+        }
+        return reviewStatsRepository.incrementAll(deltas.values());
+    }
+
+    private static ReviewStatsIncrements.Delta merge(ReviewStatsIncrements.Delta a, ReviewStatsIncrements.Delta b) {
+        var histogram = new HashMap<>(a.histogram());
+        b.histogram().forEach((bucket, delta) -> histogram.merge(bucket, delta, Long::sum));
+        return new ReviewStatsIncrements.Delta(a.movieInfoId(), a.count() + b.count(), a.sum() + b.sum(), histogram);
+    }
+
+    public Mono<Void> reviewUpdated(Long movieInfoId, Double previousRating, Double rating) {
+        return applyDelta(movieInfoId, previousRating, rating);
+    }
+
+    // a review replaced by a POST with its reviewId may even have moved to another movie
+    public Mono<Void> reviewReplaced(Review previous, Review review) {
+        if (Objects.equals(previous.getMovieInfoId(), review.getMovieInfoId())) {
+            return reviewUpdated(review.getMovieInfoId(), previous.getRating(), review.getRating());
+        }
+        return reviewDeleted(previous).then(reviewAdded(review));
+    }
+
+    public Mono<Void> reviewDeleted(Review review) {
+        return applyDelta(review.getMovieInfoId(), review.getRating(), null);
+    }
+
+    /**
+     * Rebuilds the stats of a movie from its remaining reviews after all of them were deleted in one command.
+     * A review added meanwhile survives the delete, so simply deleting the stats would lose its contribution.
+     * The window left is small: a review that is read here and whose own increment only lands after the
+     * stats are written is counted twice.
+     */
+    public Mono<Void> allReviewsDeleted(Long movieInfoId, Flux<Review> remainingReviews) {
+        return remainingReviews
+                .filter(review -> review.getRating() != null)
+                .reduceWith(() -> ReviewStats.empty(movieInfoId), ReviewStatsService::add)
+                .flatMap(stats -> stats.getCount() == 0
+                        ? reviewStatsRepository.deleteById(movieInfoId)
+                        : reviewStatsRepository.save(stats).then());
+    }
+
+    private static ReviewStats add(ReviewStats stats, Review review) {
+        stats.setCount(stats.getCount() + 1);
+        stats.setSum(stats.getSum() + review.getRating());
+        stats.getHistogram().merge(bucket(review.getRating()), 1L, Long::sum);
+        return stats;
+    }
+
+    private Mono<Void> applyDelta(Long movieInfoId, Double removedRating, Double addedRating) {
+        if (movieInfoId == null || Objects.equals(removedRating, addedRating)) {
+            return Mono.empty();
+        }
+        long count = 0;
+        double sum = 0;
+        Map<String, Long> histogram = new HashMap<>();
+        if (removedRating != null) {
+            count--;
+            sum -= removedRating;
+            histogram.merge(bucket(removedRating), -1L, Long::sum);
+        }
+        if (addedRating != null) {
+            count++;
+            sum += addedRating;
+            histogram.merge(bucket(addedRating), 1L, Long::sum);
+        }
+        histogram.values().removeIf(delta -> delta == 0);
+        return reviewStatsRepository.increment(movieInfoId, count, sum, histogram);
+    }
+
+    static String bucket(double rating) {
+        return String.valueOf((long) Math.floor(rating));
+    }
+}
@@ -0,0 +1,86 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fans saved reviews out to all stream subscribers. Each subscriber gets its own bounded buffer,
+ * a slow client loses its oldest pending reviews instead of stalling the publisher or other clients.
+ */
+@Component
+public class ReviewBroadcaster {
+
+    private final Sinks.Many<Review> reviewSink = Sinks.many().multicast().directBestEffort();
+
+    private final int subscriberBufferSize;
+
+    private final LongAdder droppedReviews = new LongAdder();
+
+    // reviews waiting in the buffer of a subscriber, one counter per subscription
+    private final Set<AtomicInteger> buffered = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ReviewBroadcaster(@Value("${reviews.stream.subscriberBufferSize}") int subscriberBufferSize,
+                             ObjectProvider<MeterRegistry> meterRegistry) {
+        this(subscriberBufferSize, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    public ReviewBroadcaster(int subscriberBufferSize, MeterRegistry meterRegistry) {
+        this.subscriberBufferSize = subscriberBufferSize;
+        Gauge.builder("reviews.stream.subscribers", this, ReviewBroadcaster::currentSubscriberCount).register(meterRegistry);
+        Gauge.builder("reviews.stream.subscribers.buffered", this, ReviewBroadcaster::bufferedReviews).register(meterRegistry);
+        FunctionCounter.builder("reviews.stream.dropped", this, ReviewBroadcaster::droppedReviews).register(meterRegistry);
+    }
+
+    // emissions are serialized here, so concurrent requests never fail with FAIL_NON_SERIALIZED;
+    // delivery only offers to the per-subscriber buffers and never waits for a client
+    public synchronized void publish(Review review) {
+        reviewSink.emitNext(review, Sinks.EmitFailureHandler.FAIL_FAST);
+    }
+
+    public Flux<Review> subscribe(Long movieInfoId) {
+        return Flux.defer(() -> {
+            var pending = new AtomicInteger();
+            buffered.add(pending);
+            var reviews = reviewSink.asFlux();
+            if (movieInfoId != null) {
+                reviews = reviews.filter(review -> movieInfoId.equals(review.getMovieInfoId()));
+            }
+            return reviews
+                    .doOnNext(review -> pending.incrementAndGet())
+                    .onBackpressureBuffer(subscriberBufferSize, dropped -> {
+                        droppedReviews.increment();
+                        pending.decrementAndGet();
+                    }, BufferOverflowStrategy.DROP_OLDEST)
+                    .doOnNext(review -> pending.decrementAndGet())
+                    .doFinally(signal -> buffered.remove(pending));
+        });
+    }
+
+    public int currentSubscriberCount() {
+        return reviewSink.currentSubscriberCount();
+    }
+
+    public long droppedReviews() {
+        return droppedReviews.sum();
+    }
+
+    public long bufferedReviews() {
+        return buffered.stream().mapToLong(AtomicInteger::get).sum();
+    }
+}
@@ -0,0 +1,105 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.config.MongoIndexInitializer;
+import com.reactivespring.domain.Review;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// fails as soon as a hot query path is no longer backed by an index
+@Testcontainers
+@DataMongoTest
+@ActiveProfiles("test")
+@Import(MongoIndexInitializer.class)
+@TestPropertySource(properties = "mongo.indexes.ensureOnStartup=false")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReviewIndexTest {
+
+    @ServiceConnection
+    private final static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:8.0.5"));
+
+    @Autowired
+    private ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @BeforeAll
+    void setUp() {
+        mongoIndexInitializer.ensureIndexes().block();
+        reviewReactiveRepository.saveAll(List.of(new Review(null, 1L, "Awesome Movie", 9.0),
+                        new Review(null, 1L, "Awesome Movie1", 7.0),
+                        new Review(null, 2L, "Excellent Movie", 8.0)))
+                .blockLast();
+    }
+
+    @AfterAll
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+    }
+
+    @Test
+    @DisplayName("findByMovieInfoId uses an index")
+    void findByMovieInfoId_usesIndex() {
+        assertIndexScan(new Document("movieInfoId", 1L), null);
+    }
+
+    @Test
+    @DisplayName("findByMovieInfoIdIn uses an index")
+    void findByMovieInfoIdIn_usesIndex() {
+        assertIndexScan(new Document("movieInfoId", new Document("$in", List.of(1L, 2L))), null);
+    }
+
+    @Test
+    @DisplayName("Top reviews by rating use the index order instead of an in-memory sort")
+    void findByMovieInfoIdOrderByRatingDesc_usesIndex() {
+        var plan = assertIndexScan(new Document("movieInfoId", 1L), new Document("rating", -1));
+        Assertions.assertFalse(plan.contains("\"SORT\""), "top reviews are sorted in memory: " + plan);
+    }
+
+    @Test
+    @DisplayName("An index with the declared name but other keys is not taken as verified")
+    void ensureIndexes_keysDiffer() {
+        var indexOps = mongoTemplate.indexOps(Review.class);
+        indexOps.dropIndex("movieInfoId_rating").block();
+        indexOps.ensureIndex(new Index().on("movieInfoId", Sort.Direction.ASC).named("movieInfoId_rating")).block();
+        try {
+            var error = Assertions.assertThrows(IllegalStateException.class, () -> mongoIndexInitializer.ensureIndexes().block());
+            Assertions.assertTrue(error.getMessage().contains("movieInfoId_rating"), error.getMessage());
+        } finally {
+            indexOps.dropIndex("movieInfoId_rating").block();
+            mongoIndexInitializer.ensureIndexes().block();
+        }
+    }
+
+    private String assertIndexScan(Document filter, Document sort) {
+        var plan = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Review.class))
+                .flatMap(collection -> {
+                    var find = collection.find(filter);
+                    return Mono.from((sort == null ? find : find.sort(sort)).explain(Document.class));
+                })
+                .map(explain -> explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson())
+                .block();
+        Assertions.assertNotNull(plan);
+        Assertions.assertFalse(plan.contains("COLLSCAN"), "query " + filter.toJson() + " falls back to a collection scan: " + plan);
+        Assertions.assertTrue(plan.contains("IXSCAN"), "query " + filter.toJson() + " does not use an index: " + plan);
+        return plan;
+    }
+}
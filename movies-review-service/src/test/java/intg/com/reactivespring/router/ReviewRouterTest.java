@@ -1,21 +1,34 @@
 package com.reactivespring.router;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
+import com.reactivespring.domain.ReviewStats;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
+import com.reactivespring.util.PageCursor;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.testcontainers.containers.MongoDBContainer;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
@@ -35,6 +48,9 @@ public class ReviewRouterTest {
     @Autowired
     ReviewReactiveRepository reviewReactiveRepository;
 
+    @Autowired
+    ReviewStatsRepository reviewStatsRepository;
+
     static  String REVIEWS_URL = "/v1/reviews";
 
     @BeforeEach
@@ -51,6 +67,7 @@ public class ReviewRouterTest {
     @AfterEach
     void tearDown() {
         reviewReactiveRepository.deleteAll().block();
+        reviewStatsRepository.deleteAll().block();
     }
 
     @Test
@@ -98,6 +115,63 @@ public class ReviewRouterTest {
 
     }
 
+    @DisplayName("findAll Reviews paged Intg Test GET Endpoint")
+    @Test
+    void getAllReviews_paged() {
+        //given
+        var firstPage = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?pageSize=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2)
+                .returnResult();
+        var cursor = firstPage.getResponseHeaders().getFirst(PageCursor.NEXT_CURSOR_HEADER);
+        assertNotNull(cursor);
+        //when
+        var secondPage = webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?pageSize=2&cursor=" + cursor)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(1)
+                .returnResult();
+        //then
+        Assertions.assertNull(secondPage.getResponseHeaders().getFirst(PageCursor.NEXT_CURSOR_HEADER), "last page should not have a cursor");
+        var firstIds = firstPage.getResponseBody().stream().map(Review::getReviewId).toList();
+        Assertions.assertFalse(firstIds.contains(secondPage.getResponseBody().get(0).getReviewId()), "pages must not overlap");
+    }
+
+    @DisplayName("findAll Reviews paged Intg Test across String and ObjectId ids")
+    @Test
+    void getAllReviews_paged_mixedIdTypes() {
+        //given "abc" is stored as a String, the generated ids as ObjectIds, which sort after all Strings
+        var ids = new ArrayList<String>();
+        String cursor = null;
+        //when every page ends on a boundary, including the one from "abc" to the first ObjectId
+        do {
+            var result = webTestClient
+                    .get()
+                    .uri(REVIEWS_URL + "?pageSize=1" + (cursor == null ? "" : "&cursor=" + cursor))
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBodyList(Review.class)
+                    .returnResult();
+            result.getResponseBody().forEach(review -> ids.add(review.getReviewId()));
+            cursor = result.getResponseHeaders().getFirst(PageCursor.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+        //then
+        Assertions.assertEquals(3, ids.size());
+        Assertions.assertEquals("abc", ids.get(0));
+        Assertions.assertTrue(ids.subList(1, 3).stream().allMatch(ObjectId::isValid), "ObjectIds should follow the String id");
+        Assertions.assertEquals(3, Set.copyOf(ids).size(), "pages must not overlap");
+    }
+
     @DisplayName("findByMovieInfoId Review Intg Test GET Endpoint queryParam movieInfoId")
     @Test
     void getReviewByMovieInfoId() {
@@ -119,6 +193,70 @@ public class ReviewRouterTest {
                 .verifyComplete();
     }
 
+    @Test
+    void getReviewsByMovieInfoIds() {
+        //given
+        URI uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                .queryParam("movieInfoIds", "1,2,3")
+                .buildAndExpand().toUri();
+        //when
+        var respReview = webTestClient
+                .get()
+                .uri(uri)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class);
+        //then
+        StepVerifier.create(respReview.getResponseBody())
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @DisplayName("Get Reviews Intg Test GET Endpoint with a top that is not a number")
+    @Test
+    void getReviewsByMovieInfoId_invalidTop() {
+        //given
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&top=abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("movieInfoId and top must be numbers");
+        //then
+    }
+
+    @Test
+    void getReviewStats_updatedIncrementally() {
+        //given
+        for (var rating : List.of(9.0, 7.5, 8.0)) {
+            webTestClient.post().uri(REVIEWS_URL)
+                    .bodyValue(new Review(null, 5L, "Rated " + rating, rating))
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        var lowest = reviewReactiveRepository.findByMovieInfoIdOrderByRatingDesc(5L, Limit.of(3)).blockLast();
+        webTestClient.delete().uri(REVIEWS_URL + "/{id}", lowest.getReviewId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        //when
+        var stats = webTestClient.get().uri(REVIEWS_URL + "/stats/{movieInfoId}", 5L)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReviewStats.class)
+                .returnResult().getResponseBody();
+
+        //then
+        assertNotNull(stats);
+        Assertions.assertEquals(2, stats.getCount());
+        Assertions.assertEquals(17.0, stats.getSum());
+        Assertions.assertEquals(Map.of("7", 0L, "8", 1L, "9", 1L), stats.getHistogram());
+    }
+
     @DisplayName("Update Review Intg Test PUT Endpoint")
     @Test
     void updateReview() {
@@ -164,6 +302,129 @@ public class ReviewRouterTest {
 
     }
 
+    @DisplayName("Update Review Intg Test PUT Endpoint with If-Match, a second update of the same version is rejected")
+    @Test
+    void updateReview_ifMatch() {
+        //given
+        var reviewUpdate = new Review("abc", 2L, "Excellent Movie+", 8.8);
+        //when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(reviewUpdate)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"");
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(new Review("abc", 2L, "Lost update", 1.0))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        //then
+        var review = reviewReactiveRepository.findById("abc").block();
+        assertNotNull(review);
+        Assertions.assertEquals("Excellent Movie+", review.getComment());
+        Assertions.assertEquals(1L, review.getVersion());
+    }
+
+    @DisplayName("Add Review Intg Test POST Endpoint with an existing reviewId increments the stored version")
+    @Test
+    void addReview_replaceKeepsVersion() {
+        //given the review has been updated to version 1
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review("abc", 2L, "Excellent Movie+", 8.8))
+                .exchange()
+                .expectStatus()
+                .isOk();
+        var replacement = new Review("abc", 2L, "Replaced", 5.0, 0L);
+
+        //when a POST replaces it with a version of its own
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(replacement)
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(Review.class)
+                .consumeWith(result -> Assertions.assertEquals(2L, result.getResponseBody().getVersion()));
+
+        //then the posted version is ignored and the stored one counts up
+        var review = reviewReactiveRepository.findById("abc").block();
+        assertNotNull(review);
+        Assertions.assertEquals("Replaced", review.getComment());
+        Assertions.assertEquals(2L, review.getVersion());
+    }
+
+    @DisplayName("Add Review Intg Test POST Endpoint over an existing reviewId, a PUT with the If-Match read before is rejected")
+    @Test
+    void addReview_replaceThenStaleIfMatch() {
+        //given
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(new Review("abc", 2L, "Excellent Movie+", 8.8))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"");
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(new Review("abc", 2L, "Replaced", 5.0, 1L))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        //when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .bodyValue(new Review("abc", 2L, "Lost update", 1.0))
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        //then
+        var review = reviewReactiveRepository.findById("abc").block();
+        assertNotNull(review);
+        Assertions.assertEquals("Replaced", review.getComment());
+    }
+
+    @DisplayName("Add Review Intg Test POST Endpoint ignores the version of a new review")
+    @Test
+    void addReview_ignoresVersion() {
+        //given
+        var review = new Review(null, 1L, "Awesome Movie", 9.0, 7L);
+
+        //when
+        var savedReview = webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(Review.class)
+                .returnResult()
+                .getResponseBody();
+
+        //then
+        assertNotNull(savedReview);
+        Assertions.assertNull(reviewReactiveRepository.findById(savedReview.getReviewId()).block().getVersion());
+    }
+
     @DisplayName("Delete Review Intg Test Delete Endpoint")
     @Test
     void deleteReview() {
@@ -193,4 +454,63 @@ public class ReviewRouterTest {
                 .verifyComplete();
     }
 
+    @DisplayName("Delete Review Intg Test Delete Endpoint when Review does not exist")
+    @Test
+    void deleteReview_whenIdNotFound() {
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", "xyz")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+    }
+
+    @DisplayName("Delete all Reviews of a movie Intg Test Delete Endpoint queryParam movieInfoId")
+    @Test
+    void deleteReviewsByMovieInfoId() {
+        //when
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.deleted").isEqualTo(2);
+
+        //then
+        StepVerifier.create(reviewReactiveRepository.findAll())
+                .assertNext(review -> Assertions.assertEquals("abc", review.getReviewId()))
+                .verifyComplete();
+    }
+
+    @DisplayName("Bulk addReviews Intg Test POST Endpoint")
+    @Test
+    void addReviews() {
+        //given
+        var reviews = Flux.just(new Review(null, 3L, "Awesome Movie", 9.0),
+                new Review(null, 3L, "Bad rating", -1.0),
+                new Review("abc", 3L, "Existing id", 8.0),
+                new Review(null, 3L, "Good Movie", 7.0));
+        //when
+        var results = webTestClient
+                .post()
+                .uri(REVIEWS_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(reviews, Review.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(ReviewIngestResult.class);
+
+        //then
+        StepVerifier.create(results.getResponseBody().map(ReviewIngestResult::getStatus))
+                .expectNext(ReviewIngestResult.Status.CREATED, ReviewIngestResult.Status.INVALID,
+                        ReviewIngestResult.Status.FAILED, ReviewIngestResult.Status.CREATED)
+                .verifyComplete();
+        var stats = reviewStatsRepository.findById(3L).block();
+        assertNotNull(stats);
+        Assertions.assertEquals(2, stats.getCount());
+        Assertions.assertEquals(16.0, stats.getSum());
+    }
 }
@@ -0,0 +1,120 @@
+package com.reactivespring.router;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import reactor.core.publisher.Flux;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Compares time-to-first-byte and peak heap of GET /v1/reviews?movieInfoId= for JSON and NDJSON
+ * with the heap a fully materialized result (the former collectList() path) needs.
+ * Run with: ./gradlew test -Pbenchmark=true --tests '*ReviewStreamingBenchmarkTest'
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ReviewStreamingBenchmarkTest {
+
+    @ServiceConnection
+    private final static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:8.0.5"));
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    private static final long MOVIE_INFO_ID = 42L;
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+    }
+
+    @DisplayName("Benchmark streaming of reviews by movieInfoId")
+    @ParameterizedTest(name = "{0} reviews")
+    @ValueSource(ints = {10_000, 100_000})
+    void streamReviewsByMovieInfoId(int reviewCount) {
+        //given
+        Flux.range(0, reviewCount)
+                .map(i -> new Review(null, MOVIE_INFO_ID, "Review " + i + " " + "x".repeat(100), 7.5))
+                .buffer(5_000)
+                .concatMap(batch -> reactiveMongoTemplate.insertAll(batch))
+                .blockLast();
+        var webClient = WebClient.create("http://localhost:" + port);
+
+        //when
+        var materialized = measure(() -> {
+            reviewReactiveRepository.findByMovieInfoId(MOVIE_INFO_ID).collectList().block();
+            return Duration.ZERO;
+        });
+        var json = measure(() -> timeToFirstByte(webClient, MediaType.APPLICATION_JSON));
+        var ndjson = measure(() -> timeToFirstByte(webClient, MediaType.APPLICATION_NDJSON));
+
+        //then
+        System.out.printf("%d reviews: materialized list peak heap +%d MB%n", reviewCount, materialized.peakHeapMb());
+        System.out.printf("%d reviews: JSON   TTFB %d ms, total %d ms, peak heap +%d MB%n", reviewCount, json.ttfbMs(), json.totalMs(), json.peakHeapMb());
+        System.out.printf("%d reviews: NDJSON TTFB %d ms, total %d ms, peak heap +%d MB%n", reviewCount, ndjson.ttfbMs(), ndjson.totalMs(), ndjson.peakHeapMb());
+    }
+
+    private Duration timeToFirstByte(WebClient webClient, MediaType mediaType) {
+        var start = System.nanoTime();
+        var firstByte = new AtomicLong();
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/v1/reviews").queryParam("movieInfoId", MOVIE_INFO_ID).build())
+                .accept(mediaType)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .doOnNext(buffer -> firstByte.compareAndSet(0, System.nanoTime()))
+                .doOnNext(DataBufferUtils::release)
+                .blockLast();
+        return Duration.ofNanos(firstByte.get() - start);
+    }
+
+    private Result measure(Supplier<Duration> run) {
+        var memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        var baseline = memory.getHeapMemoryUsage().getUsed();
+        var peak = new AtomicLong(baseline);
+        var sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max), 0, 5, TimeUnit.MILLISECONDS);
+        var start = System.nanoTime();
+        var ttfb = run.get();
+        var total = Duration.ofNanos(System.nanoTime() - start);
+        sampler.shutdownNow();
+        return new Result(ttfb.toMillis(), total.toMillis(), (peak.get() - baseline) / (1024 * 1024));
+    }
+
+    private record Result(long ttfbMs, long totalMs, long peakHeapMb) {
+    }
+}
@@ -1,15 +1,28 @@
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
 import com.reactivespring.exceptionHandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.ingest.ReviewIngestService;
+import com.reactivespring.ingest.ReviewWriteBehind;
+import com.reactivespring.domain.ReviewStats;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
 import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.stats.ReviewStatsService;
+import com.reactivespring.stream.ReviewBroadcaster;
+import com.reactivespring.util.PageCursor;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -19,11 +32,12 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, ReviewBroadcaster.class, ReviewStatsService.class, ReviewIngestService.class, ReviewWriteBehind.class, GlobalErrorHandler.class})
 @AutoConfigureWebTestClient
 public class ReviewsUnitTest {
     //@MockitoBean
@@ -32,11 +46,20 @@ public class ReviewsUnitTest {
     @MockitoBean
     private ReviewReactiveRepository reviewReactiveRepository;
 
+    @MockitoBean
+    private ReviewStatsRepository reviewStatsRepository;
+
     @Autowired
     private WebTestClient webTestClient;
 
     static  String REVIEWS_URL = "/v1/reviews";
 
+    @BeforeEach
+    void setUp() {
+        Mockito.when(reviewStatsRepository.increment(Mockito.any(), Mockito.anyLong(), Mockito.anyDouble(), Mockito.anyMap()))
+                .thenReturn(Mono.empty());
+    }
+
     @Test
     @DisplayName("Test addReview Unit Test")
     void testAddReview() {
@@ -63,6 +86,27 @@ public class ReviewsUnitTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("Test addReview Unit Test replacing the review with the posted reviewId")
+    void testAddReview_replace() {
+        //given
+        var reviewIn = new Review("abc", 1L, "Awesome Movie+", 9.0);
+        //when
+        Mockito.when(reviewReactiveRepository.replaceReview(Mockito.any(Review.class)))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 6.0)));
+
+        webTestClient
+                .post()
+                .uri(REVIEWS_URL)
+                .bodyValue(reviewIn)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+        //then the replaced rating is taken out of the stats instead of counting the review twice
+        Mockito.verify(reviewStatsRepository).increment(1L, 0L, 3.0, Map.of("6", -1L, "9", 1L));
+        Mockito.verify(reviewReactiveRepository, Mockito.never()).save(Mockito.any(Review.class));
+    }
+
     @Test
     @DisplayName("Test addReview Unit Test when Data is not valid")
     void addReview_validation() {
@@ -85,6 +129,46 @@ public class ReviewsUnitTest {
                 .isEqualTo("rating.movieInfoId: must not be null,rating.negative : rating is negative and please pass a non-negative value");
     }
 
+    @Test
+    @DisplayName("Bulk addReviews Unit Test streams one result per line and updates the stats once per batch")
+    void addReviews() {
+        //given
+        var reviews = Flux.just(new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, null, "Awesome Movie", -9.0),
+                new Review(null, 2L, "Excellent Movie", 8.0));
+        Mockito.when(reviewReactiveRepository.bulkInsert(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Review>>getArgument(0))
+                        .map(review -> ReviewIngestResult.created(new Review("id-" + review.getMovieInfoId(), review.getMovieInfoId(), review.getComment(), review.getRating()))));
+        Mockito.when(reviewStatsRepository.incrementAll(Mockito.anyCollection())).thenReturn(Mono.empty());
+
+        //when
+        var results = webTestClient
+                .post()
+                .uri(REVIEWS_URL + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(reviews, Review.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(ReviewIngestResult.class);
+
+        //then
+        StepVerifier.create(results.getResponseBody())
+                .assertNext(result -> Assertions.assertEquals("id-1", result.getReviewId()))
+                .assertNext(result -> {
+                    Assertions.assertEquals(1, result.getIndex());
+                    Assertions.assertEquals(ReviewIngestResult.Status.INVALID, result.getStatus());
+                    Assertions.assertEquals("rating.movieInfoId: must not be null,rating.negative : rating is negative and please pass a non-negative value", result.getError());
+                })
+                .assertNext(result -> {
+                    Assertions.assertEquals(2, result.getIndex());
+                    Assertions.assertEquals("id-2", result.getReviewId());
+                })
+                .verifyComplete();
+        Mockito.verify(reviewReactiveRepository, Mockito.never()).save(Mockito.any(Review.class));
+        Mockito.verify(reviewStatsRepository, Mockito.times(1)).incrementAll(Mockito.anyCollection());
+    }
+
     @DisplayName("findAll Reviews Unit Test")
     @Test
     void getAllReviews() {
@@ -94,7 +178,7 @@ public class ReviewsUnitTest {
                 new Review(null, 1L, "Awesome Movie1", 9.0),
                 new Review("abc", 2L, "Excellent Movie", 8.0));
         //when
-        Mockito.when(reviewReactiveRepository.findAll()).thenReturn(Flux.fromIterable(reviewsList));
+        Mockito.when(reviewReactiveRepository.findAllByOrderByReviewIdAsc(Mockito.any(Limit.class))).thenReturn(Flux.fromIterable(reviewsList));
 
         var respMovieInfo = webTestClient
                 .get()
@@ -111,6 +195,44 @@ public class ReviewsUnitTest {
 
     }
 
+    @DisplayName("findAll Reviews Unit Test with next page cursor")
+    @Test
+    void getAllReviews_paged() {
+        //given
+        var reviewsList = List.of(
+                new Review("a", 1L, "Awesome Movie", 9.0),
+                new Review("b", 1L, "Awesome Movie1", 9.0),
+                new Review("c", 2L, "Excellent Movie", 8.0));
+        //when
+        Mockito.when(reviewReactiveRepository.findReviewsAfter(Mockito.argThat(cursor -> cursor.getLastId().equals("0") && !cursor.isObjectId()), Mockito.eq(3)))
+                .thenReturn(Flux.fromIterable(reviewsList));
+
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?pageSize=2&cursor=" + PageCursor.encode("0"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(PageCursor.NEXT_CURSOR_HEADER, PageCursor.encode("b"))
+                .expectBodyList(Review.class)
+                .hasSize(2);
+        //then
+    }
+
+    @DisplayName("findAll Reviews Unit Test invalid pageSize")
+    @Test
+    void getAllReviews_invalidPageSize() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?pageSize=0")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("pageSize must be a positive value");
+    }
+
     @DisplayName("Update Review Unit Test")
     @Test
     void updateMovieInfo() {
@@ -118,10 +240,8 @@ public class ReviewsUnitTest {
         var id = "abc";
         var reviewIn = new Review("abc", 1L, "Awesome Movie+", 9.9);
 
-        Mockito.when(reviewReactiveRepository.findById(Mockito.any(String.class)))
-                .thenReturn(Mono.just(reviewIn));
-
-        Mockito.when(reviewReactiveRepository.save(Mockito.any(Review.class))).thenReturn(Mono.just(reviewIn));
+        Mockito.when(reviewReactiveRepository.updateCommentAndRating(id, "Awesome Movie+", 9.9, null))
+                .thenReturn(Mono.just(new Review("abc", 1L, "Awesome Movie", 9.0)));
 
         //when
         var respReview = webTestClient
@@ -138,9 +258,34 @@ public class ReviewsUnitTest {
                 .assertNext(review -> {
                     assertNotNull(review);
                     Assertions.assertEquals(reviewIn.getComment(), review.getComment(), "Comment should match");
+                    Assertions.assertEquals(1L, review.getVersion(), "Version should be incremented");
                 })
                 .verifyComplete();
+        Mockito.verify(reviewReactiveRepository, Mockito.never()).save(Mockito.any(Review.class));
+    }
+
+    @DisplayName("Update Review Unit Test with If-Match of an outdated version")
+    @Test
+    void updateReview_versionConflict() {
+        //given
+        var reviewIn = new Review("abc", 1L, "Awesome Movie+", 9.9);
+        Mockito.when(reviewReactiveRepository.updateCommentAndRating("abc", "Awesome Movie+", 9.9, 3L)).thenReturn(Mono.empty());
+        Mockito.when(reviewReactiveRepository.existsById("abc")).thenReturn(Mono.just(true));
+
+        //when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .bodyValue(reviewIn)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED)
+                .expectBody(String.class)
+                .isEqualTo("Review abc has been changed, expected version: 3");
 
+        //then
+        Mockito.verify(reviewStatsRepository, Mockito.never()).increment(Mockito.any(), Mockito.anyLong(), Mockito.anyDouble(), Mockito.anyMap());
     }
 
     @DisplayName("Delete Review Unit Test")
@@ -150,10 +295,8 @@ public class ReviewsUnitTest {
         var id = "abc";
         var reviewIn = new Review("abc", 1L, "Awesome Movie+", 9.9);
 
-        Mockito.when(reviewReactiveRepository.findById(Mockito.any(String.class)))
+        Mockito.when(reviewReactiveRepository.deleteByReviewId(id))
                 .thenReturn(Mono.just(reviewIn));
-        Mockito.when(reviewReactiveRepository.deleteById(Mockito.any(String.class)))
-                .thenReturn(Mono.empty());
 
         //when
         webTestClient
@@ -163,6 +306,70 @@ public class ReviewsUnitTest {
                 .expectStatus()
                 .isNoContent()
                 .returnResult(Void.class);
+
+        //then
+        Mockito.verify(reviewReactiveRepository, Mockito.never()).findById(Mockito.any(String.class));
+        Mockito.verify(reviewStatsRepository).increment(1L, -1L, -9.9, Map.of("9", -1L));
+    }
+
+    @DisplayName("Delete Review Unit Test when Review does not exist")
+    @Test
+    void deleteReview_whenIdNotFound() {
+        //given
+        Mockito.when(reviewReactiveRepository.deleteByReviewId("xyz")).thenReturn(Mono.empty());
+
+        //when
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "/{id}", "xyz")
+                .exchange()
+                .expectStatus()
+                .isNotFound()
+                .expectBody(String.class)
+                .isEqualTo("Review not found for the given Review id: xyz");
+    }
+
+    @DisplayName("Delete all Reviews of a movie Unit Test")
+    @Test
+    void deleteReviewsByMovieInfoId() {
+        //given
+        Mockito.when(reviewReactiveRepository.deleteByMovieInfoId(1L)).thenReturn(Mono.just(3L));
+        Mockito.when(reviewReactiveRepository.findByMovieInfoId(1L)).thenReturn(Flux.empty());
+        Mockito.when(reviewStatsRepository.deleteById(1L)).thenReturn(Mono.empty());
+
+        //when
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.deleted").isEqualTo(3);
+
+        //then
+        Mockito.verify(reviewStatsRepository).deleteById(1L);
+    }
+
+    @DisplayName("Delete all Reviews of a movie Unit Test keeps the stats of a review added meanwhile")
+    @Test
+    void deleteReviewsByMovieInfoId_concurrentlyAdded() {
+        //given a review added between the delete and the stats update survives the delete
+        Mockito.when(reviewReactiveRepository.deleteByMovieInfoId(1L)).thenReturn(Mono.just(3L));
+        Mockito.when(reviewReactiveRepository.findByMovieInfoId(1L)).thenReturn(Flux.just(new Review("abc", 1L, "Late review", 7.5)));
+        Mockito.when(reviewStatsRepository.save(Mockito.any(ReviewStats.class))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        //when
+        webTestClient
+                .delete()
+                .uri(REVIEWS_URL + "?movieInfoId=1")
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        //then
+        Mockito.verify(reviewStatsRepository).save(new ReviewStats(1L, 1, 7.5, Map.of("7", 1L)));
+        Mockito.verify(reviewStatsRepository, Mockito.never()).deleteById(1L);
     }
 
     @DisplayName("findByMovieInfoId Review Unit Test GET Endpoint queryParam movieInfoId")
@@ -190,4 +397,153 @@ public class ReviewsUnitTest {
                 .expectNextCount(2)
                 .verifyComplete();
     }
+
+    @DisplayName("findByMovieInfoId Review Unit Test GET Endpoint as NDJSON")
+    @Test
+    void getReviewByMovieInfoId_ndjson() {
+        //given
+        var reviewsList = List.of(
+                new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, 1L, "Awesome Movie1", 9.0));
+        URI uri = UriComponentsBuilder.fromUriString(REVIEWS_URL)
+                .queryParam("movieInfoId", "1")
+                .buildAndExpand().toUri();
+
+        Mockito.when(reviewReactiveRepository.findByMovieInfoId(Mockito.anyLong())).thenReturn(Flux.fromIterable(reviewsList));
+        //when
+        var respReview = webTestClient
+                .get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Review.class);
+        //then
+        StepVerifier.create(respReview.getResponseBody())
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @DisplayName("findByMovieInfoIdIn Review Unit Test GET Endpoint queryParam movieInfoIds")
+    @Test
+    void getReviewsByMovieInfoIds() {
+        //given
+        var reviewsList = List.of(
+                new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, 2L, "Awesome Movie1", 8.0));
+        Mockito.when(reviewReactiveRepository.findByMovieInfoIdIn(List.of(1L, 2L))).thenReturn(Flux.fromIterable(reviewsList));
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoIds=1,2,1")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2);
+        //then
+        Mockito.verify(reviewReactiveRepository, Mockito.never()).findByMovieInfoId(Mockito.anyLong());
+    }
+
+    @DisplayName("findByMovieInfoIdIn Review Unit Test invalid movieInfoIds")
+    @Test
+    void getReviewsByMovieInfoIds_invalid() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoIds=1,abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @DisplayName("Review stream Unit Test invalid movieInfoId")
+    @Test
+    void getReviewsStream_invalidMovieInfoId() {
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stream?movieInfoId=abc")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @DisplayName("Update Review Unit Test applies the rating change to the stats")
+    @Test
+    void updateReview_updatesStats() {
+        //given
+        var existingReview = new Review("abc", 1L, "Awesome Movie", 7.0);
+        var reviewIn = new Review("abc", 1L, "Awesome Movie+", 9.5);
+        Mockito.when(reviewReactiveRepository.updateCommentAndRating("abc", "Awesome Movie+", 9.5, null)).thenReturn(Mono.just(existingReview));
+
+        //when
+        webTestClient
+                .put()
+                .uri(REVIEWS_URL + "/{id}", "abc")
+                .bodyValue(reviewIn)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        //then
+        Mockito.verify(reviewStatsRepository).increment(1L, 0L, 2.5, Map.of("7", -1L, "9", 1L));
+    }
+
+    @DisplayName("Review stats Unit Test GET Endpoint")
+    @Test
+    void getReviewStats() {
+        //given
+        Mockito.when(reviewStatsRepository.findById(1L))
+                .thenReturn(Mono.just(new ReviewStats(1L, 2, 17.0, Map.of("8", 1L, "9", 1L))));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats/{movieInfoId}", 1L)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.average").isEqualTo(8.5)
+                .jsonPath("$.histogram.9").isEqualTo(1);
+    }
+
+    @DisplayName("Review stats Unit Test GET Endpoint for a movie without reviews")
+    @Test
+    void getReviewStats_noReviews() {
+        //given
+        Mockito.when(reviewStatsRepository.findById(2L)).thenReturn(Mono.empty());
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "/stats/{movieInfoId}", 2L)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(0)
+                .jsonPath("$.average").isEqualTo(0.0);
+    }
+
+    @DisplayName("Top reviews Unit Test GET Endpoint queryParam top")
+    @Test
+    void getTopReviewsByMovieInfoId() {
+        //given
+        Mockito.when(reviewReactiveRepository.findByMovieInfoIdOrderByRatingDesc(1L, Limit.of(2)))
+                .thenReturn(Flux.just(new Review(null, 1L, "Awesome Movie", 9.0), new Review(null, 1L, "Good Movie", 7.0)));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEWS_URL + "?movieInfoId=1&top=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
 }
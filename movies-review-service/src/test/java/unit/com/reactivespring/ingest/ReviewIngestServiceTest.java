@@ -0,0 +1,109 @@
+package com.reactivespring.ingest;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
+import com.reactivespring.stats.ReviewStatsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+class ReviewIngestServiceTest {
+
+    private final ReviewReactiveRepository reviewReactiveRepository = Mockito.mock(ReviewReactiveRepository.class);
+
+    private final ReviewStatsRepository reviewStatsRepository = Mockito.mock(ReviewStatsRepository.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ReviewIngestService reviewIngestService = new ReviewIngestService(reviewReactiveRepository,
+            new ReviewStatsService(reviewStatsRepository), Validation.buildDefaultValidatorFactory().getValidator(), meterRegistry);
+
+    @DisplayName("Bulk ingest inserts valid Reviews in batches, writes the stats once per batch and reports every line in order")
+    @Test
+    void ingest() {
+        //given
+        var reviews = List.of(
+                new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, null, "Awesome Movie", -9.0),
+                new Review("abc", 1L, "Duplicate", 8.0),
+                new Review(null, 2L, "Good Movie", 7.0));
+        Mockito.when(reviewReactiveRepository.bulkInsert(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Review>>getArgument(0))
+                        .map(review -> review.getReviewId() == null
+                                ? ReviewIngestResult.created(new Review("id", review.getMovieInfoId(), review.getComment(), review.getRating()))
+                                : ReviewIngestResult.failed(review, "duplicate key")));
+        Mockito.when(reviewStatsRepository.incrementAll(Mockito.anyCollection())).thenReturn(Mono.empty());
+
+        //when
+        var results = reviewIngestService.ingest(Flux.fromIterable(reviews), 2, Duration.ofSeconds(1), 2);
+
+        //then
+        StepVerifier.create(results)
+                .assertNext(result -> Assertions.assertEquals(ReviewIngestResult.Status.CREATED, result.getStatus()))
+                .assertNext(result -> {
+                    Assertions.assertEquals(1, result.getIndex());
+                    Assertions.assertEquals(ReviewIngestResult.Status.INVALID, result.getStatus());
+                })
+                .assertNext(result -> {
+                    Assertions.assertEquals(2, result.getIndex());
+                    Assertions.assertEquals(ReviewIngestResult.Status.FAILED, result.getStatus());
+                })
+                .assertNext(result -> {
+                    Assertions.assertEquals(3, result.getIndex());
+                    Assertions.assertEquals(ReviewIngestResult.Status.CREATED, result.getStatus());
+                })
+                .verifyComplete();
+        Mockito.verify(reviewReactiveRepository).bulkInsert(List.of(reviews.get(0)));
+        Mockito.verify(reviewReactiveRepository).bulkInsert(List.of(reviews.get(2), reviews.get(3)));
+        // the duplicate is not counted
+        Mockito.verify(reviewStatsRepository, Mockito.times(2)).incrementAll(Mockito.argThat(deltas -> deltas.size() == 1));
+    }
+
+    @DisplayName("Bulk ingest writes a batch that does not fill up after maxDelay, a slow producer still gets results")
+    @Test
+    void ingest_slowProducer() {
+        //given
+        var review = new Review(null, 1L, "Awesome Movie", 9.0);
+        Mockito.when(reviewReactiveRepository.bulkInsert(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Review>>getArgument(0)).map(ReviewIngestResult::created));
+        Mockito.when(reviewStatsRepository.incrementAll(Mockito.anyCollection())).thenReturn(Mono.empty());
+
+        //when the producer sends one review and then nothing for a long time
+        var results = reviewIngestService.ingest(Flux.just(review).concatWith(Flux.never()), 1000, Duration.ofMillis(50), 2);
+
+        //then
+        StepVerifier.create(results)
+                .assertNext(result -> Assertions.assertEquals(ReviewIngestResult.Status.CREATED, result.getStatus()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @DisplayName("A failed stats write still reports the committed reviews as CREATED and is counted")
+    @Test
+    void ingestBatch_statsFailure() {
+        //given
+        Mockito.when(reviewReactiveRepository.bulkInsert(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Review>>getArgument(0)).map(ReviewIngestResult::created));
+        Mockito.when(reviewStatsRepository.incrementAll(Mockito.anyCollection())).thenReturn(Mono.error(new RuntimeException("connection reset")));
+
+        //when
+        var results = reviewIngestService.ingestBatch(List.of(new Review(null, 1L, "Awesome Movie", 9.0)));
+
+        //then
+        StepVerifier.create(results)
+                .assertNext(result -> Assertions.assertEquals(ReviewIngestResult.Status.CREATED, result.getStatus()))
+                .verifyComplete();
+        Assertions.assertEquals(1.0, meterRegistry.get("reviews.stats.failures").counter().count());
+    }
+}
@@ -0,0 +1,151 @@
+package com.reactivespring.ingest;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
+import com.reactivespring.exception.ReviewWriteRejectedException;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.repository.ReviewStatsRepository;
+import com.reactivespring.stats.ReviewStatsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+class ReviewWriteBehindTest {
+
+    private final ReviewReactiveRepository reviewReactiveRepository = Mockito.mock(ReviewReactiveRepository.class);
+
+    private final ReviewStatsRepository reviewStatsRepository = Mockito.mock(ReviewStatsRepository.class);
+
+    private final ReviewIngestService reviewIngestService = new ReviewIngestService(reviewReactiveRepository,
+            new ReviewStatsService(reviewStatsRepository), Validation.buildDefaultValidatorFactory().getValidator(), new SimpleMeterRegistry());
+
+    private ReviewWriteBehind reviewWriteBehind;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(reviewStatsRepository.incrementAll(Mockito.anyCollection())).thenReturn(Mono.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewWriteBehind.close();
+    }
+
+    @DisplayName("Concurrent saves are written with one bulk insert and every caller gets its own review")
+    @Test
+    void save_fullBatch() {
+        //given
+        reviewWriteBehind = new ReviewWriteBehind(reviewIngestService, true, 3, Duration.ofMinutes(1), 10, 1, new SimpleMeterRegistry());
+        mockBulkInsert();
+
+        //when
+        var saved = Flux.range(1, 3)
+                .flatMap(i -> reviewWriteBehind.save(new Review(null, (long) i, "Review " + i, 8.0), this::failDirect));
+
+        //then
+        StepVerifier.create(saved.map(Review::getReviewId).collectList())
+                .assertNext(ids -> Assertions.assertEquals(List.of("id-1", "id-2", "id-3"), ids.stream().sorted().toList()))
+                .verifyComplete();
+        Mockito.verify(reviewReactiveRepository, Mockito.times(1)).bulkInsert(Mockito.anyList());
+        Mockito.verify(reviewStatsRepository, Mockito.times(1)).incrementAll(Mockito.argThat(deltas -> deltas.size() == 3));
+    }
+
+    @DisplayName("A batch that does not fill up is written after maxDelay")
+    @Test
+    void save_maxDelay() {
+        //given
+        reviewWriteBehind = new ReviewWriteBehind(reviewIngestService, true, 100, Duration.ofMillis(20), 10, 1, new SimpleMeterRegistry());
+        mockBulkInsert();
+
+        //when
+        var saved = reviewWriteBehind.save(new Review(null, 1L, "Awesome Movie", 9.0), this::failDirect);
+
+        //then
+        StepVerifier.create(saved.map(Review::getReviewId))
+                .expectNext("id-1")
+                .verifyComplete();
+    }
+
+    @DisplayName("A review the bulk insert rejects only fails its own caller")
+    @Test
+    void save_failedReview() {
+        //given
+        reviewWriteBehind = new ReviewWriteBehind(reviewIngestService, true, 2, Duration.ofMinutes(1), 10, 1, new SimpleMeterRegistry());
+        Mockito.when(reviewReactiveRepository.bulkInsert(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Review>>getArgument(0))
+                        .map(review -> review.getMovieInfoId() == 2L
+                                ? ReviewIngestResult.failed(review, "E11000 duplicate key error")
+                                : ReviewIngestResult.created(review)));
+
+        //when
+        var first = reviewWriteBehind.save(new Review(null, 1L, "Awesome Movie", 9.0), this::failDirect).cache();
+        var second = reviewWriteBehind.save(new Review(null, 2L, "Awesome Movie", 9.0), this::failDirect).cache();
+        first.subscribe(review -> {}, e -> {});
+        second.subscribe(review -> {}, e -> {});
+
+        //then
+        StepVerifier.create(first.map(Review::getMovieInfoId)).expectNext(1L).verifyComplete();
+        StepVerifier.create(second).expectError(DataIntegrityViolationException.class).verify();
+    }
+
+    @DisplayName("A full queue rejects the review right away")
+    @Test
+    void save_queueFull() {
+        //given the bulk insert in flight does not complete before the queue is full
+        reviewWriteBehind = new ReviewWriteBehind(reviewIngestService, true, 1, Duration.ofMinutes(1), 2, 1, new SimpleMeterRegistry());
+        var acknowledged = Sinks.empty();
+        Mockito.when(reviewReactiveRepository.bulkInsert(Mockito.anyList()))
+                .thenAnswer(invocation -> acknowledged.asMono().thenMany(Flux.fromIterable(invocation.<List<Review>>getArgument(0))
+                        .map(ReviewIngestResult::created)));
+
+        //when
+        var rejected = Flux.range(1, 10)
+                .flatMap(i -> reviewWriteBehind.save(new Review(null, (long) i, "Review " + i, 8.0), this::failDirect)
+                        .onErrorResume(ReviewWriteRejectedException.class, e -> Mono.just(new Review())))
+                .take(1);
+
+        //then
+        StepVerifier.create(rejected)
+                .expectNextCount(1)
+                .verifyComplete();
+        acknowledged.tryEmitEmpty();
+    }
+
+    @DisplayName("Reviews are saved directly while write-behind is disabled")
+    @Test
+    void save_direct() {
+        //given
+        reviewWriteBehind = new ReviewWriteBehind(reviewIngestService, false, 100, Duration.ofMillis(20), 10, 1, new SimpleMeterRegistry());
+        var review = new Review(null, 1L, "Awesome Movie", 9.0);
+
+        //when
+        var saved = reviewWriteBehind.save(review, Mono::just);
+
+        //then
+        StepVerifier.create(saved).expectNext(review).verifyComplete();
+        Mockito.verifyNoInteractions(reviewReactiveRepository);
+    }
+
+    private void mockBulkInsert() {
+        Mockito.when(reviewReactiveRepository.bulkInsert(Mockito.anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Review>>getArgument(0))
+                        .map(review -> ReviewIngestResult.created(new Review("id-" + review.getMovieInfoId(), review.getMovieInfoId(), review.getComment(), review.getRating()))));
+    }
+
+    private Mono<Review> failDirect(Review review) {
+        return Mono.error(new AssertionError("review should have been written by the write-behind"));
+    }
+}
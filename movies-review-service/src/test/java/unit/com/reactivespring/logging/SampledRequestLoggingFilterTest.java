@@ -0,0 +1,72 @@
+package com.reactivespring.logging;
+
+import com.reactivespring.exception.ReviewDataException;
+import com.reactivespring.exception.ReviewNotFoundException;
+import com.reactivespring.exception.ReviewVersionConflictException;
+import com.reactivespring.exception.ReviewWriteRejectedException;
+import com.reactivespring.exceptionHandler.GlobalErrorHandler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Map;
+
+class SampledRequestLoggingFilterTest {
+
+    private static final long FAST = Duration.ofMillis(5).toNanos();
+
+    private SampledRequestLoggingFilter filter(double sampleRate, Map<String, Double> routes) {
+        var properties = new RequestLoggingProperties();
+        properties.setSampleRate(sampleRate);
+        properties.getRoutes().putAll(routes);
+        properties.setSlowThreshold(Duration.ofMillis(500));
+        return new SampledRequestLoggingFilter(properties, GlobalErrorHandler::statusOf);
+    }
+
+    @Test
+    void successfulRequestsAreSampled() {
+        Assertions.assertFalse(filter(0, Map.of()).shouldLog(PathContainer.parsePath("/v1/reviews"), 200, FAST));
+        Assertions.assertTrue(filter(1, Map.of()).shouldLog(PathContainer.parsePath("/v1/reviews"), 200, FAST));
+    }
+
+    @Test
+    void failedAndSlowRequestsAreAlwaysLogged() {
+        var filter = filter(0, Map.of());
+
+        Assertions.assertTrue(filter.shouldLog(PathContainer.parsePath("/v1/reviews"), 500, FAST));
+        Assertions.assertTrue(filter.shouldLog(PathContainer.parsePath("/v1/reviews"), 200, Duration.ofSeconds(1).toNanos()));
+        Assertions.assertFalse(filter.shouldLog(PathContainer.parsePath("/v1/reviews"), 404, FAST));
+    }
+
+    @Test
+    void routeRateOverridesDefault() {
+        var filter = filter(1, Map.of("/v1/reviews/stream", 0.0, "/v1/reviews/stats/**", 1.0));
+
+        Assertions.assertFalse(filter.shouldLog(PathContainer.parsePath("/v1/reviews/stream"), 200, FAST));
+        Assertions.assertTrue(filter.shouldLog(PathContainer.parsePath("/v1/reviews/stats/1"), 200, FAST));
+        Assertions.assertTrue(filter.shouldLog(PathContainer.parsePath("/v1/reviews"), 200, FAST));
+    }
+
+    @Test
+    void disabledRoutesOnlyLogServerErrors() {
+        var filter = filter(1, Map.of("/v1/reviews/stream", 0.0));
+
+        Assertions.assertFalse(filter.shouldLog(PathContainer.parsePath("/v1/reviews/stream"), 200, Duration.ofMinutes(10).toNanos()));
+        Assertions.assertTrue(filter.shouldLog(PathContainer.parsePath("/v1/reviews/stream"), 500, FAST));
+    }
+
+    @Test
+    void errorsAreLoggedWithTheStatusTheyAreAnsweredWith() {
+        var filter = filter(0, Map.of());
+
+        Assertions.assertEquals(400, filter.errorStatus(new ReviewDataException("rating is negative")));
+        Assertions.assertEquals(404, filter.errorStatus(new ReviewNotFoundException("Review not found")));
+        Assertions.assertEquals(412, filter.errorStatus(new ReviewVersionConflictException("Review has been changed")));
+        Assertions.assertEquals(503, filter.errorStatus(new ReviewWriteRejectedException("Too many reviews")));
+        Assertions.assertEquals(405, filter.errorStatus(new ResponseStatusException(HttpStatus.METHOD_NOT_ALLOWED)));
+        Assertions.assertEquals(500, filter.errorStatus(new IllegalStateException("boom")));
+    }
+}
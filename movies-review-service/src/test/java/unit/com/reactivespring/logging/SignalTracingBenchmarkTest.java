@@ -0,0 +1,105 @@
+package com.reactivespring.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.io.OutputStream;
+import java.util.function.Function;
+
+/**
+ * Throughput of a small Mono pipeline with the former per-signal .log(), with signal tracing switched off
+ * and switched on. Log events go through an async appender into a discarding stream, so the numbers show the
+ * cost inside the pipeline, not the one of a console.
+ * Run with: ./gradlew test -Pbenchmark=true --tests '*SignalTracingBenchmarkTest'
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class SignalTracingBenchmarkTest {
+
+    private static final int WARMUP = 50_000;
+
+    private static final int ITERATIONS = 200_000;
+
+    private static final String LEGACY_CATEGORY = "benchmark.signals";
+
+    private final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+    private AsyncAppender appender;
+
+    @BeforeEach
+    void setUp() {
+        var encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %-5level [%thread] %logger - %msg%n");
+        encoder.start();
+        var sink = new OutputStreamAppender<ILoggingEvent>();
+        sink.setContext(context);
+        sink.setEncoder(encoder);
+        sink.setOutputStream(OutputStream.nullOutputStream());
+        sink.start();
+        appender = new AsyncAppender();
+        appender.setContext(context);
+        appender.setQueueSize(8192);
+        appender.setNeverBlock(true);
+        appender.addAppender(sink);
+        appender.start();
+        for (var name : new String[]{LEGACY_CATEGORY, SignalTracing.CATEGORY}) {
+            var logger = context.getLogger(name);
+            logger.setAdditive(false);
+            logger.addAppender(appender);
+        }
+        context.getLogger(LEGACY_CATEGORY).setLevel(Level.INFO);
+        context.getLogger(SignalTracing.CATEGORY).setLevel(Level.INFO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (var name : new String[]{LEGACY_CATEGORY, SignalTracing.CATEGORY}) {
+            Logger logger = context.getLogger(name);
+            logger.detachAppender(appender);
+            logger.setAdditive(true);
+            logger.setLevel(null);
+        }
+        appender.stop();
+    }
+
+    @DisplayName("Benchmark per-signal logging against switchable signal tracing")
+    @Test
+    void signalLogging() {
+        var legacy = measure(source -> source.log(LEGACY_CATEGORY));
+        var tracingOff = measure(SignalTracing.traced("benchmark"));
+        context.getLogger(SignalTracing.CATEGORY).setLevel(Level.TRACE);
+        var tracingOn = measure(SignalTracing.traced("benchmark"));
+
+        System.out.printf(".log() at INFO:        %,10d ops/s%n", legacy);
+        System.out.printf("SignalTracing off:     %,10d ops/s%n", tracingOff);
+        System.out.printf("SignalTracing (TRACE): %,10d ops/s%n", tracingOn);
+    }
+
+    private long measure(Function<Mono<Integer>, Mono<Integer>> logging) {
+        run(WARMUP, logging);
+        var start = System.nanoTime();
+        run(ITERATIONS, logging);
+        return ITERATIONS * 1_000_000_000L / (System.nanoTime() - start);
+    }
+
+    private void run(int iterations, Function<Mono<Integer>, Mono<Integer>> logging) {
+        for (int i = 0; i < iterations; i++) {
+            Mono.just(i)
+                    .map(value -> value + 1)
+                    .transform(logging)
+                    .block();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewIngestResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+class ReviewBulkWritesImplTest {
+
+    private final ReactiveMongoTemplate mongoTemplate = Mockito.mock(ReactiveMongoTemplate.class);
+
+    private final ReactiveBulkOperations bulkOperations = Mockito.mock(ReactiveBulkOperations.class);
+
+    private final ReviewBulkWritesImpl reviewBulkWrites = new ReviewBulkWritesImpl(mongoTemplate);
+
+    @DisplayName("A bulk insert that fails as a whole marks every review of the batch FAILED instead of failing the stream")
+    @Test
+    void bulkInsert_failedBatch() {
+        //given
+        Mockito.when(mongoTemplate.bulkOps(Mockito.any(), Mockito.eq(Review.class))).thenReturn(bulkOperations);
+        Mockito.when(bulkOperations.execute()).thenReturn(Mono.error(new QueryTimeoutException("Timed out after 30000 ms")));
+
+        //when
+        var results = reviewBulkWrites.bulkInsert(List.of(
+                new Review(null, 1L, "Awesome Movie", 9.0),
+                new Review(null, 2L, "Good Movie", 7.0)));
+
+        //then
+        StepVerifier.create(results)
+                .expectNextMatches(result -> result.getStatus() == ReviewIngestResult.Status.FAILED)
+                .assertNext(result -> {
+                    Assertions.assertEquals(ReviewIngestResult.Status.FAILED, result.getStatus());
+                    Assertions.assertEquals("Timed out after 30000 ms", result.getError());
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,83 @@
+package com.reactivespring.stats;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.repository.ReviewStatsIncrements;
+import com.reactivespring.repository.ReviewStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class ReviewStatsServiceTest {
+
+    private final ReviewStatsRepository reviewStatsRepository = Mockito.mock(ReviewStatsRepository.class);
+
+    private final ReviewStatsService reviewStatsService = new ReviewStatsService(reviewStatsRepository);
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(reviewStatsRepository.increment(Mockito.any(), Mockito.anyLong(), Mockito.anyDouble(), Mockito.anyMap()))
+                .thenReturn(Mono.empty());
+    }
+
+    @Test
+    @DisplayName("Added and deleted reviews change count, sum and histogram")
+    void addAndDelete() {
+        StepVerifier.create(reviewStatsService.reviewAdded(new Review(null, 1L, "Awesome Movie", 9.5))).verifyComplete();
+        StepVerifier.create(reviewStatsService.reviewDeleted(new Review("abc", 1L, "Awesome Movie", 9.5))).verifyComplete();
+
+        Mockito.verify(reviewStatsRepository).increment(1L, 1L, 9.5, Map.of("9", 1L));
+        Mockito.verify(reviewStatsRepository).increment(1L, -1L, -9.5, Map.of("9", -1L));
+    }
+
+    @Test
+    @DisplayName("An update within the same bucket only changes the sum")
+    void update_sameBucket() {
+        StepVerifier.create(reviewStatsService.reviewUpdated(1L, 8.0, 8.5)).verifyComplete();
+
+        Mockito.verify(reviewStatsRepository).increment(1L, 0L, 0.5, Map.of());
+    }
+
+    @Test
+    @DisplayName("A review replaced with another movieInfoId moves from one movie's stats to the other's")
+    void replace_otherMovie() {
+        StepVerifier.create(reviewStatsService.reviewReplaced(new Review("abc", 1L, "Awesome Movie", 9.5),
+                new Review("abc", 2L, "Awesome Movie", 7.0))).verifyComplete();
+
+        Mockito.verify(reviewStatsRepository).increment(1L, -1L, -9.5, Map.of("9", -1L));
+        Mockito.verify(reviewStatsRepository).increment(2L, 1L, 7.0, Map.of("7", 1L));
+    }
+
+    @Test
+    @DisplayName("Unrated reviews and unchanged ratings do not touch the stats")
+    void noDelta() {
+        StepVerifier.create(reviewStatsService.reviewAdded(new Review(null, 1L, "No rating", null))).verifyComplete();
+        StepVerifier.create(reviewStatsService.reviewUpdated(1L, 8.0, 8.0)).verifyComplete();
+
+        Mockito.verifyNoInteractions(reviewStatsRepository);
+    }
+
+    @Test
+    @DisplayName("The reviews of a batch are applied with one stats write, one delta per movie")
+    void reviewsAdded() {
+        Mockito.when(reviewStatsRepository.incrementAll(Mockito.anyCollection())).thenReturn(Mono.empty());
+
+        StepVerifier.create(reviewStatsService.reviewsAdded(List.of(
+                        new Review(null, 1L, "Awesome Movie", 9.5),
+                        new Review(null, 2L, "Good Movie", 7.0),
+                        new Review(null, 1L, "Great Movie", 9.0),
+                        new Review(null, 1L, "No rating", null))))
+                .verifyComplete();
+
+        Mockito.verify(reviewStatsRepository).incrementAll(Mockito.argThat(deltas -> Set.copyOf(deltas).equals(Set.of(
+                new ReviewStatsIncrements.Delta(1L, 2, 18.5, Map.of("9", 2L)),
+                new ReviewStatsIncrements.Delta(2L, 1, 7.0, Map.of("7", 1L))))));
+        Mockito.verify(reviewStatsRepository, Mockito.never()).increment(Mockito.any(), Mockito.anyLong(), Mockito.anyDouble(), Mockito.anyMap());
+    }
+}
@@ -0,0 +1,101 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class ReviewBroadcasterTest {
+
+    private static final int BUFFER_SIZE = 256;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Stream filters reviews by movieInfoId")
+    void subscribe_filtersByMovieInfoId() {
+        //given
+        var broadcaster = new ReviewBroadcaster(BUFFER_SIZE, meterRegistry);
+        //when
+        StepVerifier.create(broadcaster.subscribe(1L))
+                .then(() -> {
+                    broadcaster.publish(new Review("a", 1L, "Awesome Movie", 9.0));
+                    broadcaster.publish(new Review("b", 2L, "Excellent Movie", 8.0));
+                    broadcaster.publish(new Review("c", 1L, "Awesome Movie1", 7.0));
+                })
+                //then
+                .assertNext(review -> Assertions.assertEquals("a", review.getReviewId(), "first review of movie 1"))
+                .assertNext(review -> Assertions.assertEquals("c", review.getReviewId(), "second review of movie 1"))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("Hundreds of subscribers and concurrent writers, a stalled subscriber only drops its own reviews")
+    void publish_concurrentWritersAndSubscribers() throws InterruptedException {
+        //given
+        var broadcaster = new ReviewBroadcaster(BUFFER_SIZE, meterRegistry);
+        var movieCount = 10;
+        var subscribersPerMovie = 30;
+        var writers = 8;
+        var reviewsPerWriter = 250;
+
+        List<AtomicInteger> received = new ArrayList<>();
+        for (long movieInfoId = 0; movieInfoId < movieCount; movieInfoId++) {
+            for (int i = 0; i < subscribersPerMovie; i++) {
+                var counter = new AtomicInteger();
+                received.add(counter);
+                broadcaster.subscribe(movieInfoId).subscribe(review -> counter.incrementAndGet());
+            }
+        }
+        // never requests anything, like an NDJSON client that stopped reading
+        var stalled = new BaseSubscriber<Review>() {
+            @Override
+            protected void hookOnSubscribe(org.reactivestreams.Subscription subscription) {
+            }
+        };
+        broadcaster.subscribe(null).subscribe(stalled);
+
+        //when
+        var failure = new AtomicReference<Throwable>();
+        var done = new CountDownLatch(writers);
+        try (var executor = Executors.newFixedThreadPool(writers)) {
+            for (int w = 0; w < writers; w++) {
+                executor.execute(() -> {
+                    try {
+                        for (int i = 0; i < reviewsPerWriter; i++) {
+                            broadcaster.publish(new Review(null, (long) (i % movieCount), "Review " + i, 8.0));
+                        }
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            Assertions.assertTrue(done.await(30, TimeUnit.SECONDS), "writers should not be blocked");
+        }
+
+        //then
+        var total = writers * reviewsPerWriter;
+        Assertions.assertNull(failure.get(), "concurrent publish must not fail");
+        Assertions.assertEquals(movieCount * subscribersPerMovie + 1, broadcaster.currentSubscriberCount(), "all subscribers should be connected");
+        received.forEach(counter -> Assertions.assertEquals(total / movieCount, counter.get(), "every subscriber should get all reviews of its movie"));
+        Assertions.assertEquals(total - BUFFER_SIZE, broadcaster.droppedReviews(), "only the stalled subscriber should drop reviews");
+        Assertions.assertEquals(BUFFER_SIZE, meterRegistry.get("reviews.stream.subscribers.buffered").gauge().value(), "only the stalled subscriber should have a full buffer");
+        Assertions.assertEquals(total - BUFFER_SIZE, meterRegistry.get("reviews.stream.dropped").functionCounter().count(), "dropped counter should match");
+        stalled.dispose();
+        Assertions.assertEquals(0.0, meterRegistry.get("reviews.stream.subscribers.buffered").gauge().value(), "buffer of a disposed subscriber should be released");
+    }
+}
@@ -0,0 +1,81 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read-through cache in front of {@link MoviesInfoRestClient#retrieveMovieInfo(String)}.
+ * Concurrent misses for the same id share one in-flight request; errors and empty results are not cached.
+ * Batch lookups fetch all missing ids with one request to the batch endpoint of movies-info-service.
+ */
+@Component
+public class MovieInfoCache {
+
+    private final MoviesInfoRestClient moviesInfoRestClient;
+
+    private final AsyncCache<String, MovieInfo> cache;
+
+    private final boolean enabled;
+
+    public MovieInfoCache(MoviesInfoRestClient moviesInfoRestClient,
+                          @Value("${cache.movieInfo.enabled}") boolean enabled,
+                          @Value("${cache.movieInfo.maximumSize}") long maximumSize,
+                          @Value("${cache.movieInfo.ttl}") Duration ttl,
+                          ObjectProvider<MeterRegistry> meterRegistry) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), cache, "movieInfo");
+    }
+
+    public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        if (!enabled) {
+            return moviesInfoRestClient.retrieveMovieInfo(movieId);
+        }
+        // suppressCancel: a cancelled caller must not cancel the load other callers are waiting for
+        return Mono.fromFuture(() -> cache.get(movieId, (id, executor) -> moviesInfoRestClient.retrieveMovieInfo(id).toFuture()), true);
+    }
+
+    // cached entries are served directly, all misses are loaded with a single batch request
+    public Mono<Map<String, MovieInfo>> retrieveMovieInfos(List<String> movieIds) {
+        if (!enabled) {
+            return loadMovieInfos(movieIds);
+        }
+        return Mono.fromFuture(() -> cache.getAll(movieIds, (ids, executor) -> loadMovieInfos(List.copyOf(ids)).toFuture()), true);
+    }
+
+    private Mono<Map<String, MovieInfo>> loadMovieInfos(List<String> movieIds) {
+        return moviesInfoRestClient.retrieveMovieInfos(movieIds)
+                .collectMap(MovieInfo::getMovieInfoId);
+    }
+
+    public void put(MovieInfo movieInfo) {
+        cache.put(movieInfo.getMovieInfoId(), CompletableFuture.completedFuture(movieInfo));
+    }
+
+    public void invalidate(String movieId) {
+        cache.synchronous().invalidate(movieId);
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+}
@@ -0,0 +1,91 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.MovieInfoEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps {@link MovieInfoCache} coherent with the change stream of movies-info-service.
+ * Updates refresh the cached entry, deletes evict it. Whenever the stream had to be re-established
+ * or offsets were skipped, events may have been missed, so the whole cache is dropped.
+ */
+@Component
+@Slf4j
+public class MovieInfoCacheInvalidator {
+
+    private final MoviesInfoRestClient moviesInfoRestClient;
+
+    private final MovieInfoCache movieInfoCache;
+
+    @Value("${cache.movieInfo.invalidation.enabled}")
+    private boolean enabled;
+
+    @Value("${cache.movieInfo.invalidation.minBackoff}")
+    private Duration minBackoff;
+
+    @Value("${cache.movieInfo.invalidation.maxBackoff}")
+    private Duration maxBackoff;
+
+    private final AtomicLong nextOffset = new AtomicLong();
+
+    private Disposable subscription;
+
+    public MovieInfoCacheInvalidator(MoviesInfoRestClient moviesInfoRestClient, MovieInfoCache movieInfoCache) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.movieInfoCache = movieInfoCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = Flux.defer(() -> {
+                    movieInfoCache.invalidateAll();
+                    return moviesInfoRestClient.retrieveMovieInfoChanges(nextOffset.get());
+                })
+                .doOnNext(this::apply)
+                .repeatWhen(completed -> completed.delayElements(minBackoff))
+                // a stream that delivered events again counts as recovered, the next drop starts over at minBackoff
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, minBackoff)
+                        .maxBackoff(maxBackoff)
+                        .transientErrors(true)
+                        .doBeforeRetry(retrySignal -> log.warn("MovieInfo change stream failed, reconnecting: {}", retrySignal.failure().getMessage())))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    void apply(MovieInfoEvent event) {
+        if (event.getOffset() != null) {
+            if (event.getOffset() > nextOffset.get()) {
+                log.info("MovieInfo change stream skipped offsets {} to {}, dropping cache", nextOffset.get(), event.getOffset() - 1);
+                movieInfoCache.invalidateAll();
+            }
+            nextOffset.set(event.getOffset() + 1);
+        }
+        switch (event.getType()) {
+            case UPDATED -> movieInfoCache.put(event.getMovieInfo());
+            case DELETED -> movieInfoCache.invalidate(event.getMovieInfoId());
+            case CREATED -> {
+                // nothing cached yet, misses are not cached
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.reactivespring.client;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Downstream calls that build a new WebClient request on every subscription. Retries and hedges subscribe again,
+ * and an attempt must not reuse the exchange of an earlier one or its observation.
+ */
+final class DeferredRequest {
+
+    private DeferredRequest() {
+    }
+
+    static <T> Mono<T> mono(Supplier<Mono<T>> request) {
+        return Mono.defer(request);
+    }
+
+    static <T> Flux<T> flux(Supplier<Flux<T>> request) {
+        return Flux.defer(request);
+    }
+}
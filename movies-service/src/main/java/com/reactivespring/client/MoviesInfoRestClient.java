@@ -1,21 +1,36 @@
 package com.reactivespring.client;
 
-import com.reactivespring.config.RetryUtil;
+import com.reactivespring.coalesce.SingleFlight;
+import com.reactivespring.config.WebClientConfig;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.hedge.HedgePolicy;
+import com.reactivespring.retry.RetryPolicy;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
+import java.net.URI;
 import java.time.Duration;
+import java.util.Collection;
 
 @Component
 @Slf4j
@@ -23,57 +38,134 @@ public class MoviesInfoRestClient {
 
     private WebClient webClient;
 
+    // /stream and /changes, on a pool of their own
+    private final WebClient streamWebClient;
+
+    private final RetryPolicy retryPolicy;
+
+    private final HedgePolicy hedgePolicy;
+
+    private final SingleFlight<String, MovieInfo> singleFlight;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
     @Value("${restClient.movieInfoUrl}")
     private String movieInfoUrl;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    public MoviesInfoRestClient(@Qualifier("moviesInfoWebClient") WebClient webClient,
+                              @Qualifier("moviesInfoStreamWebClient") WebClient streamWebClient,
+                              @Qualifier("moviesInfoRetryPolicy") RetryPolicy retryPolicy,
+                              @Qualifier("moviesInfoHedgePolicy") HedgePolicy hedgePolicy,
+                              @Qualifier("moviesInfoSingleFlight") SingleFlight<String, MovieInfo> singleFlight,
+                              CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
         this.webClient = webClient;
+        this.streamWebClient = streamWebClient;
+        this.retryPolicy = retryPolicy;
+        this.hedgePolicy = hedgePolicy;
+        this.singleFlight = singleFlight;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("movieInfo");
+        this.bulkhead = bulkheadRegistry.bulkhead("movieInfo");
     }
 
+    // concurrent lookups of the same id share one request, including its retries
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        return singleFlight.execute(movieId, this::fetchMovieInfo);
+    }
+
+    private Mono<MovieInfo> fetchMovieInfo(String movieId) {
         var url = movieInfoUrl.concat("/{id}");
-        return webClient.get().uri(url, movieId)
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
-                    log.info("Status code is: {}", clientResponse.statusCode().value());
-                    if(clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
-                        return Mono.error(new MoviesInfoClientException("There is no MovieInfo available for the passed Id: " + movieId, clientResponse.statusCode().value() ));
-                    }
-                    return clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value() )));
-                })
-                .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
-                    log.info("Status code is: {}", clientResponse.statusCode().value());
-                    return clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException("ServerException in MoviesInfoService: "+responseMessage)));
-                })
-                .bodyToMono(MovieInfo.class)
-                .retryWhen(RetryUtil.retrySpec(
-                        MoviesInfoServerException.class,
-                        retrySignal -> new MoviesInfoServerException("Max retries reached: " +
-                                retrySignal.totalRetries() + " Cause: " + retrySignal.failure().getMessage())
-                ));
+        return DeferredRequest.mono(() -> webClient.get().uri(url, movieId)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        if(clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
+                            return Mono.error(new MoviesInfoClientException("There is no MovieInfo available for the passed Id: " + movieId, clientResponse.statusCode().value() ));
+                        }
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value() )));
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException("ServerException in MoviesInfoService: "+responseMessage)));
+                    })
+                    .bodyToMono(MovieInfo.class))
+                .transform(this::isolated)
+                .transform(hedgePolicy::apply)
+                .transform(response -> retryPolicy.apply(response, MoviesInfoServerException.class, MoviesInfoRestClient::retriesExhausted));
+    }
+
+    // one request for many ids, unknown ids are missing from the result
+    public Flux<MovieInfo> retrieveMovieInfos(Collection<String> movieIds) {
+        URI uri = UriComponentsBuilder
+                .fromUriString(movieInfoUrl)
+                .queryParam("ids", String.join(",", movieIds))
+                .buildAndExpand().toUri();
+        return DeferredRequest.flux(() -> webClient.get().uri(uri)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value() )));
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException("ServerException in MoviesInfoService: "+responseMessage)));
+                    })
+                    .bodyToFlux(MovieInfo.class))
+                .transform(this::isolated)
+                .transform(response -> retryPolicy.apply(response, MoviesInfoServerException.class, MoviesInfoRestClient::retriesExhausted));
     }
 
     public Flux<MovieInfo> retrieveMovieInfoStream() {
         var url = movieInfoUrl.concat("/stream");
-        return webClient.get().uri(url)
+        return DeferredRequest.flux(() -> streamWebClient.get().uri(url)
+                    .httpRequest(WebClientConfig.NO_RESPONSE_TIMEOUT)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value() )));
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException("ServerException in MoviesInfoService: "+responseMessage)));
+                    })
+                    .bodyToFlux(MovieInfo.class))
+                .transform(response -> retryPolicy.apply(response, MoviesInfoServerException.class, MoviesInfoRestClient::retriesExhausted));
+    }
+
+    // no retry here, the consumer decides how to reconnect and where to resume
+    public Flux<MovieInfoEvent> retrieveMovieInfoChanges(long fromOffset) {
+        var url = movieInfoUrl.concat("/changes?fromOffset={fromOffset}");
+        return streamWebClient.get().uri(url, fromOffset)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .httpRequest(WebClientConfig.NO_RESPONSE_TIMEOUT)
                 .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
-                    log.info("Status code is: {}", clientResponse.statusCode().value());
-                    return clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value() )));
-                })
-                .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
-                    log.info("Status code is: {}", clientResponse.statusCode().value());
-                    return clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException("ServerException in MoviesInfoService: "+responseMessage)));
-                })
-                .bodyToFlux(MovieInfo.class)
-                .retryWhen(RetryUtil.retrySpec(
-                        MoviesInfoServerException.class,
-                        retrySignal -> new MoviesInfoServerException("Max retries reached: " +
-                                retrySignal.totalRetries() + " Cause: " + retrySignal.failure().getMessage())
-                ));
+                .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> clientResponse.bodyToMono(String.class)
+                        .flatMap(responseMessage -> Mono.error(new MoviesInfoClientException(responseMessage, clientResponse.statusCode().value()))))
+                .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> clientResponse.bodyToMono(String.class)
+                        .flatMap(responseMessage -> Mono.error(new MoviesInfoServerException("ServerException in MoviesInfoService: " + responseMessage))))
+                .bodyToFlux(MovieInfoEvent.class);
+    }
+
+    private static MoviesInfoServerException retriesExhausted(Retry.RetrySignal retrySignal) {
+        return new MoviesInfoServerException("Max retries reached: " +
+                retrySignal.totalRetries() + " Cause: " + retrySignal.failure().getMessage());
+    }
+
+    // the bulkhead wraps the circuit breaker, calls rejected by an open circuit give their permit back right away
+    private <T> Mono<T> isolated(Mono<T> call) {
+        return call.transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead));
+    }
+
+    private <T> Flux<T> isolated(Flux<T> call) {
+        return call.transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead));
     }
 }
@@ -1,11 +1,21 @@
 package com.reactivespring.client;
 
-import com.reactivespring.config.RetryUtil;
+import com.reactivespring.coalesce.SingleFlight;
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
 import com.reactivespring.exception.MoviesInfoServerException;
 import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
+import com.reactivespring.hedge.HedgePolicy;
+import com.reactivespring.retry.RetryPolicy;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
@@ -14,23 +24,51 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
 
 @Component
 @Slf4j
 public class ReviewsRestClient {
     private WebClient webClient;
 
+    private final RetryPolicy retryPolicy;
+
+    private final HedgePolicy hedgePolicy;
+
+    private final SingleFlight<String, List<Review>> singleFlight;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Bulkhead bulkhead;
+
     @Value("${restClient.reviewsUrl}")
     private String reviewsUrl;
 
-    public ReviewsRestClient(WebClient webClient) {
+    public ReviewsRestClient(@Qualifier("reviewsWebClient") WebClient webClient, @Qualifier("reviewsRetryPolicy") RetryPolicy retryPolicy,
+                             @Qualifier("reviewsHedgePolicy") HedgePolicy hedgePolicy,
+                             @Qualifier("reviewsSingleFlight") SingleFlight<String, List<Review>> singleFlight,
+                             CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
         this.webClient = webClient;
+        this.retryPolicy = retryPolicy;
+        this.hedgePolicy = hedgePolicy;
+        this.singleFlight = singleFlight;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("reviews");
+        this.bulkhead = bulkheadRegistry.bulkhead("reviews");
     }
 
 
+    // concurrent lookups for the same movie share one request, including its retries
     public Flux<Review> retrieveReviews(String movieId) {
+        return singleFlight.execute(movieId, id -> fetchReviews(id).collectList())
+                .flatMapIterable(Function.identity());
+    }
+
+    private Flux<Review> fetchReviews(String movieId) {
         var url = reviewsUrl;
 
         URI uri = UriComponentsBuilder
@@ -38,27 +76,115 @@ public class ReviewsRestClient {
                 .queryParam("movieInfoId", movieId)
                 .buildAndExpand().toUri();;
 
-        return webClient.get().uri(uri)
-                .retrieve()
-                .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
-                    log.info("Status code is: {}", clientResponse.statusCode().value());
-                    if(clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
-                        return Mono.empty();
-                    }
-                    return clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new ReviewsClientException(responseMessage)));
-                })
-                .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
-                    log.info("Status code is: {}", clientResponse.statusCode().value());
-                    return clientResponse.bodyToMono(String.class)
-                            .flatMap(responseMessage -> Mono.error(new ReviewsServerException("ServerException in ReviewsService: " + responseMessage)));
-                })
-                .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec(
-                        ReviewsServerException.class,
-                        retrySignal -> new ReviewsServerException("Max retries reached: " +
-                                retrySignal.totalRetries() + " Cause: " + retrySignal.failure().getMessage())
-                ));
+        return DeferredRequest.flux(() -> webClient.get().uri(uri)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        if(clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
+                            return Mono.empty();
+                        }
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new ReviewsClientException(responseMessage)));
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new ReviewsServerException("ServerException in ReviewsService: " + responseMessage)));
+                    })
+                    .bodyToFlux(Review.class))
+                .transform(this::isolated)
+                .transform(hedgePolicy::apply)
+                .transform(response -> retryPolicy.apply(response, ReviewsServerException.class, ReviewsRestClient::retriesExhausted));
+    }
+
+    // the N best rated reviews of the movie
+    public Flux<Review> retrieveTopReviews(String movieId, int top) {
+        URI uri = UriComponentsBuilder
+                .fromUriString(reviewsUrl)
+                .queryParam("movieInfoId", movieId)
+                .queryParam("top", top)
+                .buildAndExpand().toUri();
+
+        return DeferredRequest.flux(() -> webClient.get().uri(uri)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        if(clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
+                            return Mono.empty();
+                        }
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new ReviewsClientException(responseMessage)));
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new ReviewsServerException("ServerException in ReviewsService: " + responseMessage)));
+                    })
+                    .bodyToFlux(Review.class))
+                .transform(this::isolated)
+                .transform(response -> retryPolicy.apply(response, ReviewsServerException.class, ReviewsRestClient::retriesExhausted));
     }
 
+    public Mono<ReviewStats> retrieveReviewStats(String movieId) {
+        var url = reviewsUrl.concat("/stats/{movieInfoId}");
+
+        return DeferredRequest.mono(() -> webClient.get().uri(url, movieId)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new ReviewsClientException(responseMessage)));
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new ReviewsServerException("ServerException in ReviewsService: " + responseMessage)));
+                    })
+                    .bodyToMono(ReviewStats.class))
+                .transform(this::isolated)
+                .transform(response -> retryPolicy.apply(response, ReviewsServerException.class, ReviewsRestClient::retriesExhausted));
+    }
+
+    // reviews of several movies with one request, the caller groups them by movieInfoId
+    public Flux<Review> retrieveReviews(Collection<String> movieIds) {
+        URI uri = UriComponentsBuilder
+                .fromUriString(reviewsUrl)
+                .queryParam("movieInfoIds", String.join(",", movieIds))
+                .buildAndExpand().toUri();
+
+        return DeferredRequest.flux(() -> webClient.get().uri(uri)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        if(clientResponse.statusCode().equals(HttpStatus.NOT_FOUND)) {
+                            return Mono.empty();
+                        }
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new ReviewsClientException(responseMessage)));
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, clientResponse -> {
+                        log.info("Status code is: {}", clientResponse.statusCode().value());
+                        return clientResponse.bodyToMono(String.class)
+                                .flatMap(responseMessage -> Mono.error(new ReviewsServerException("ServerException in ReviewsService: " + responseMessage)));
+                    })
+                    .bodyToFlux(Review.class))
+                .transform(this::isolated)
+                .transform(response -> retryPolicy.apply(response, ReviewsServerException.class, ReviewsRestClient::retriesExhausted));
+    }
+
+    private static ReviewsServerException retriesExhausted(Retry.RetrySignal retrySignal) {
+        return new ReviewsServerException("Max retries reached: " +
+                retrySignal.totalRetries() + " Cause: " + retrySignal.failure().getMessage());
+    }
+
+    // the bulkhead wraps the circuit breaker, calls rejected by an open circuit give their permit back right away
+    private <T> Mono<T> isolated(Mono<T> call) {
+        return call.transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead));
+    }
+
+    private <T> Flux<T> isolated(Flux<T> call) {
+        return call.transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(BulkheadOperator.of(bulkhead));
+    }
 }
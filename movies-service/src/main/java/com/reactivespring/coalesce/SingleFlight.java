@@ -0,0 +1,75 @@
+package com.reactivespring.coalesce;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent calls for the same key: the first caller starts the downstream call, callers arriving
+ * while it is in flight subscribe to the same result. The key is released as soon as the call terminates,
+ * later callers start a new one, nothing is cached.
+ * A cancelling caller only leaves the flight, the downstream call is cancelled once no caller is left.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final boolean enabled;
+
+    private final Counter calls;
+
+    private final Counter coalesced;
+
+    public SingleFlight(String name, boolean enabled, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.calls = meterRegistry.counter("http.client.coalescing.calls", "client", name);
+        this.coalesced = meterRegistry.counter("http.client.coalescing.joined", "client", name);
+        Gauge.builder("http.client.coalescing.inflight", inFlight, ConcurrentMap::size)
+                .tag("client", name)
+                .register(meterRegistry);
+    }
+
+    public Mono<V> execute(K key, Function<K, Mono<V>> call) {
+        if (!enabled) {
+            return call.apply(key);
+        }
+        return Mono.defer(() -> {
+            calls.increment();
+            var flight = inFlight.get(key);
+            if (flight != null) {
+                coalesced.increment();
+                return flight;
+            }
+            var started = start(key, call);
+            flight = inFlight.putIfAbsent(key, started);
+            if (flight != null) {
+                coalesced.increment();
+                return flight;
+            }
+            return started;
+        });
+    }
+
+    private Mono<V> start(K key, Function<K, Mono<V>> call) {
+        var flight = new AtomicReference<Mono<V>>();
+        flight.set(call.apply(key)
+                // released before the result is handed out, a caller reacting to it must not join the finished flight
+                .doOnTerminate(() -> inFlight.remove(key, flight.get()))
+                .doOnCancel(() -> inFlight.remove(key, flight.get()))
+                .flux()
+                .publish()
+                .refCount(1)
+                .singleOrEmpty());
+        return flight.get();
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,30 @@
+package com.reactivespring.config;
+
+import com.reactivespring.coalesce.SingleFlight;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class CoalescingConfig {
+
+    @Value("${restClient.coalescing.enabled}")
+    private boolean enabled;
+
+    @Bean
+    public SingleFlight<String, MovieInfo> moviesInfoSingleFlight(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new SingleFlight<>("movieInfo", enabled, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public SingleFlight<String, List<Review>> reviewsSingleFlight(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new SingleFlight<>("reviews", enabled, meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
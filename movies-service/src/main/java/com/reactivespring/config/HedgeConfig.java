@@ -0,0 +1,25 @@
+package com.reactivespring.config;
+
+import com.reactivespring.hedge.HedgePolicy;
+import com.reactivespring.hedge.HedgeProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(HedgeProperties.class)
+public class HedgeConfig {
+
+    @Bean
+    public HedgePolicy moviesInfoHedgePolicy(HedgeProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new HedgePolicy("movieInfo", properties.getMovieInfo(), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public HedgePolicy reviewsHedgePolicy(HedgeProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new HedgePolicy("reviews", properties.getReviews(), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
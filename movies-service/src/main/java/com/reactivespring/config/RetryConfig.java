@@ -0,0 +1,30 @@
+package com.reactivespring.config;
+
+import com.reactivespring.retry.RetryPolicy;
+import com.reactivespring.retry.RetryProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(RetryProperties.class)
+public class RetryConfig {
+
+    @Bean
+    public RetryPolicy moviesInfoRetryPolicy(RetryProperties properties, ObjectProvider<MeterRegistry> meterRegistry,
+                                             ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new RetryPolicy("movieInfo", properties.getMovieInfo(), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+    }
+
+    @Bean
+    public RetryPolicy reviewsRetryPolicy(RetryProperties properties, ObjectProvider<MeterRegistry> meterRegistry,
+                                          ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new RetryPolicy("reviews", properties.getReviews(), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry),
+                observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+    }
+}
@@ -1,13 +1,103 @@
 package com.reactivespring.config;
 
+import io.micrometer.common.KeyValues;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequestObservationContext;
+import org.springframework.web.reactive.function.client.ClientRequestObservationConvention;
+import org.springframework.web.reactive.function.client.DefaultClientRequestObservationConvention;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.function.Consumer;
 
 @Configuration
+@EnableConfigurationProperties(WebClientProperties.class)
 public class WebClientConfig {
+
+    // for long-lived streams, where a quiet period is no reason to give up
+    public static final Consumer<ClientHttpRequest> NO_RESPONSE_TIMEOUT =
+            request -> request.<HttpClientRequest>getNativeRequest().responseTimeout(null);
+
+    // separate pools, a slow downstream or a crowd of streams cannot use up the connections of the others
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoConnectionProvider(WebClientProperties properties) {
+        return connectionProvider("movieInfo", properties.getMovieInfo());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoStreamConnectionProvider(WebClientProperties properties) {
+        return connectionProvider("movieInfoStream", properties.getMovieInfoStream());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(WebClientProperties properties) {
+        return connectionProvider("reviews", properties.getReviews());
+    }
+
     @Bean
-    public WebClient webClient(WebClient.Builder builder) {
-        return builder.build();
+    public WebClient moviesInfoWebClient(WebClient.Builder builder, WebClientProperties properties,
+                                         @Qualifier("moviesInfoConnectionProvider") ConnectionProvider connectionProvider) {
+        return webClient(builder, connectionProvider, properties.getMovieInfo(), "movieInfo");
+    }
+
+    // tagged like the lookups, the pool name tells streams and lookups apart
+    @Bean
+    public WebClient moviesInfoStreamWebClient(WebClient.Builder builder, WebClientProperties properties,
+                                               @Qualifier("moviesInfoStreamConnectionProvider") ConnectionProvider connectionProvider) {
+        return webClient(builder, connectionProvider, properties.getMovieInfoStream(), "movieInfo");
+    }
+
+    @Bean
+    public WebClient reviewsWebClient(WebClient.Builder builder, WebClientProperties properties,
+                                      @Qualifier("reviewsConnectionProvider") ConnectionProvider connectionProvider) {
+        return webClient(builder, connectionProvider, properties.getReviews(), "reviews");
+    }
+
+    // metrics(true) exports reactor.netty.connection.provider.* gauges (active, idle, pending) tagged with the pool name
+    private ConnectionProvider connectionProvider(String name, WebClientProperties.Downstream settings) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(settings.getMaxConnections())
+                .pendingAcquireMaxCount(settings.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(settings.getPendingAcquireTimeout())
+                .maxIdleTime(settings.getMaxIdleTime())
+                .maxLifeTime(settings.getMaxLifeTime())
+                .evictInBackground(settings.getEvictInBackground())
+                .metrics(true)
+                .build();
+    }
+
+    private WebClient webClient(WebClient.Builder builder, ConnectionProvider connectionProvider, WebClientProperties.Downstream settings,
+                                String target) {
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) settings.getConnectTimeout().toMillis())
+                .responseTimeout(settings.getResponseTimeout())
+                .compress(settings.isCompression());
+        if (settings.isH2c()) {
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        // the builder is a prototype, cloning keeps the customizations of the two clients apart
+        return builder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .observationConvention(targetTagged(target))
+                .build();
+    }
+
+    // http.client.requests only knows the host, which is the same for both downstreams behind a gateway
+    private static ClientRequestObservationConvention targetTagged(String target) {
+        return new DefaultClientRequestObservationConvention() {
+            @Override
+            public KeyValues getLowCardinalityKeyValues(ClientRequestObservationContext context) {
+                return super.getLowCardinalityKeyValues(context).and("target", target);
+            }
+        };
     }
 }
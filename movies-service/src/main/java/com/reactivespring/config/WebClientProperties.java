@@ -0,0 +1,36 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// connection pool and timeout settings per downstream service
+@Data
+@ConfigurationProperties(prefix = "rest-client.connection")
+public class WebClientProperties {
+
+    private Downstream movieInfo = new Downstream();
+
+    // /stream and /changes of MoviesInfoService, each holds a connection for as long as it is subscribed
+    private Downstream movieInfoStream = new Downstream();
+
+    private Downstream reviews = new Downstream();
+
+    @Data
+    public static class Downstream {
+        private int maxConnections = 100;
+        // requests waiting for a connection, more are rejected right away
+        private int pendingAcquireMaxCount = 1000;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictInBackground = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        // max time between two reads of a response, streaming calls switch it off
+        private Duration responseTimeout = Duration.ofSeconds(10);
+        // HTTP/2 cleartext with upgrade from HTTP/1.1, the downstream needs server.http2.enabled
+        private boolean h2c = false;
+        private boolean compression = true;
+    }
+}
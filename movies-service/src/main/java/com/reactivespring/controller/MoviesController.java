@@ -1,41 +1,166 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.cache.MovieInfoCache;
 import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.client.ReviewsRestClient;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieSummary;
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.retry.RetryPolicy;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/v1/movies")
+@Slf4j
 public class MoviesController {
 
     private MoviesInfoRestClient moviesInfoRestClient;
     private ReviewsRestClient reviewsRestClient;
+    private MovieInfoCache movieInfoCache;
+
+    // 0s disables the timeout
+    @Value("${movies.aggregation.reviewsTimeout}")
+    private Duration reviewsTimeout;
+
+    // true: a failing or slow ReviewsService yields the movie with an empty reviewList
+    @Value("${movies.aggregation.reviewsOptional}")
+    private boolean reviewsOptional;
+
+    @Value("${movies.summary.defaultTopReviews}")
+    private int defaultTopReviews;
 
-    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
+    @Value("${movies.summary.maxTopReviews}")
+    private int maxTopReviews;
+
+    @Value("${movies.batch.maxSize}")
+    private int maxBatchSize;
+
+    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient, MovieInfoCache movieInfoCache) {
         this.moviesInfoRestClient = moviesInfoRestClient;
         this.reviewsRestClient = reviewsRestClient;
+        this.movieInfoCache = movieInfoCache;
     }
 
     @GetMapping("/{id}")
     public Mono<Movie> retrieveMovieById(@PathVariable String id) {
-        var movieInfoMono = moviesInfoRestClient.retrieveMovieInfo(id);
-        var reviews = reviewsRestClient.retrieveReviews(id)
-                .collectList();
-        return movieInfoMono.flatMap(movieInfo ->
-             reviews.map(reviewList -> new Movie(movieInfo, reviewList))
-        );
+        // both calls are subscribed at once, latency is bounded by the slower downstream
+        var movieInfoMono = movieInfoCache.retrieveMovieInfo(id);
+        var reviewsMono = reviewsRestClient.retrieveReviews(id)
+                .collectList()
+                .transform(reviews -> applyReviewsPolicy(reviews, List.of(), id));
+        // reviews are materialized so that a movie info error (e.g. 404) still takes precedence
+        return Mono.zip(movieInfoMono, reviewsMono.materialize())
+                .flatMap(tuple -> tuple.getT2().hasError()
+                        ? Mono.error(tuple.getT2().getThrowable())
+                        : Mono.just(new Movie(tuple.getT1(), tuple.getT2().get())));
+    }
+
+    // summary mode: precomputed rating stats and the best rated reviews instead of every review
+    @GetMapping(value = "/{id}", params = "view=summary")
+    public Mono<MovieSummary> retrieveMovieSummaryById(@PathVariable String id,
+                                                       @RequestParam(value = "top", required = false) Integer top) {
+        var topReviews = top == null ? defaultTopReviews : top;
+        if (topReviews < 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "top must not be negative"));
+        }
+        var movieInfoMono = movieInfoCache.retrieveMovieInfo(id);
+        var statsMono = reviewsRestClient.retrieveReviewStats(id)
+                .transform(stats -> applyReviewsPolicy(stats, ReviewStats.empty(), id));
+        var topReviewsMono = (topReviews == 0 ? Mono.<List<Review>>just(List.of())
+                : reviewsRestClient.retrieveTopReviews(id, Math.min(topReviews, maxTopReviews)).collectList())
+                .transform(reviews -> applyReviewsPolicy(reviews, List.of(), id));
+        return Mono.zip(movieInfoMono, Mono.zip(statsMono, topReviewsMono).materialize())
+                .flatMap(tuple -> tuple.getT2().hasError()
+                        ? Mono.error(tuple.getT2().getThrowable())
+                        : Mono.just(new MovieSummary(tuple.getT1(), tuple.getT2().get().getT1(), tuple.getT2().get().getT2())));
+    }
+
+    // two downstream requests for the whole batch, movies are emitted in request order, unknown ids are skipped
+    @GetMapping(params = "ids", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Movie> retrieveMoviesByIds(@RequestParam("ids") List<String> ids) {
+        var movieIds = ids.stream()
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .distinct()
+                .toList();
+        if (movieIds.size() > maxBatchSize) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxBatchSize + " ids are allowed per request"));
+        }
+        if (movieIds.isEmpty()) {
+            return Flux.empty();
+        }
+        var movieInfosMono = movieInfoCache.retrieveMovieInfos(movieIds);
+        // ReviewsService keys reviews by a numeric movieInfoId and rejects the whole batch for any other id
+        var reviewIds = movieIds.stream()
+                .filter(MoviesController::isNumeric)
+                .toList();
+        var reviewsMono = reviewIds.isEmpty()
+                ? Mono.<Map<String, Collection<Review>>>just(Map.of())
+                : reviewsRestClient.retrieveReviews(reviewIds)
+                .collectMultimap(review -> String.valueOf(review.getMovieInfoId()))
+                .transform(reviews -> applyReviewsPolicy(reviews, Map.of(), String.join(",", reviewIds)));
+        return Mono.zip(movieInfosMono, reviewsMono.materialize())
+                .flatMapMany(tuple -> {
+                    if (tuple.getT2().hasError()) {
+                        return Flux.error(tuple.getT2().getThrowable());
+                    }
+                    var movieInfos = tuple.getT1();
+                    var reviews = tuple.getT2().get();
+                    return Flux.fromIterable(movieIds)
+                            .filter(movieInfos::containsKey)
+                            .map(id -> new Movie(movieInfos.get(id), List.copyOf(reviews.getOrDefault(id, List.of()))));
+                });
     }
 
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> retrieveMovieInfosStream() {
         return moviesInfoRestClient.retrieveMovieInfoStream();
     }
+
+    private static boolean isNumeric(String id) {
+        try {
+            Long.parseLong(id);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private <T> Mono<T> applyReviewsPolicy(Mono<T> reviews, T fallback, String id) {
+        // the deadline keeps the reviews client from starting retries that cannot finish in time
+        var guarded = (reviewsTimeout.isZero() ? reviews : reviews.timeout(reviewsTimeout)
+                .contextWrite(RetryPolicy.deadlineIn(reviewsTimeout)))
+                // open circuit or full bulkhead: ReviewsService is known to be in trouble, degrade instead of failing
+                .onErrorResume(ex -> ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException, ex -> {
+                    log.warn("Reviews for movie {} skipped: {}", id, ex.getMessage());
+                    return Mono.just(fallback);
+                });
+        if (!reviewsOptional) {
+            return guarded;
+        }
+        return guarded.onErrorResume(ex -> {
+            log.warn("Reviews for movie {} not available, returning movie without reviews: {}", id, ex.getMessage());
+            return Mono.just(fallback);
+        });
+    }
 }
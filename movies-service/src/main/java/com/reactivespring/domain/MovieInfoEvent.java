@@ -0,0 +1,18 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieInfoEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private Long offset;
+    private Type type;
+    private String movieInfoId;
+    private MovieInfo movieInfo;
+}
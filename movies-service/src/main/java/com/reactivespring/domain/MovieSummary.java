@@ -0,0 +1,17 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieSummary {
+
+    private MovieInfo movieInfo;
+    private ReviewStats reviewStats;
+    private List<Review> topReviews;
+}
@@ -0,0 +1,23 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewStats {
+
+    private Long movieInfoId;
+    private long count;
+    private double sum;
+    private double average;
+    private Map<String, Long> histogram;
+
+    public static ReviewStats empty() {
+        return new ReviewStats(null, 0, 0, 0, Map.of());
+    }
+}
@@ -0,0 +1,92 @@
+package com.reactivespring.hedge;
+
+import com.reactivespring.retry.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Hedged requests for one downstream client: if the first request has not answered after a delay taken
+ * from the recent latency percentile, the same request is sent a second time and whichever answers first wins,
+ * the other one is cancelled. Hedges are limited by a token bucket filled by the calls of the client.
+ * The source must be idempotent and cold, every subscription has to send its own request.
+ */
+public class HedgePolicy {
+
+    private final HedgeProperties.Policy settings;
+
+    private final LatencyTracker latencies;
+
+    private final TokenBucket budget;
+
+    private final Counter hedges;
+
+    private final Counter hedgeWins;
+
+    private final Counter skippedBudget;
+
+    public HedgePolicy(String name, HedgeProperties.Policy settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.latencies = new LatencyTracker(settings.getSampleSize(), settings.getPercentile());
+        this.budget = new TokenBucket(settings.getMaxHedgeBurst(), settings.getMaxHedgeRatio());
+        this.hedges = meterRegistry.counter("http.client.hedge.requests", "client", name);
+        this.hedgeWins = meterRegistry.counter("http.client.hedge.wins", "client", name);
+        this.skippedBudget = meterRegistry.counter("http.client.hedge.skipped", "client", name, "reason", "budget");
+        Gauge.builder("http.client.hedge.delay", this, policy -> policy.delay().toMillis())
+                .tag("client", name)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    // the first signal wins, an error of the first request is not hidden by a pending hedge, retrying is the retry policy's job
+    public <T> Mono<T> apply(Mono<T> source) {
+        if (!settings.isEnabled()) {
+            return source;
+        }
+        return Mono.defer(() -> {
+            budget.deposit();
+            var primary = timed(source);
+            var hedge = Mono.delay(delay())
+                    .flatMap(tick -> {
+                        if (!budget.tryAcquire()) {
+                            skippedBudget.increment();
+                            return Mono.never();
+                        }
+                        hedges.increment();
+                        return source.doOnSuccess(value -> hedgeWins.increment());
+                    });
+            return Mono.firstWithSignal(primary, hedge);
+        });
+    }
+
+    // hedging needs the whole answer, the response is collected and replayed
+    public <T> Flux<T> apply(Flux<T> source) {
+        if (!settings.isEnabled()) {
+            return source;
+        }
+        return apply(source.collectList()).flatMapIterable(Function.identity());
+    }
+
+    // a cancelled primary is recorded with the time it got, otherwise only the fast calls would be seen
+    private <T> Mono<T> timed(Mono<T> source) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return source.doOnSuccess(value -> latencies.record(System.nanoTime() - start))
+                    .doOnCancel(() -> latencies.record(System.nanoTime() - start));
+        });
+    }
+
+    Duration delay() {
+        var percentile = latencies.percentileNanos();
+        if (percentile < 0 || latencies.count() < settings.getMinSamples()) {
+            return settings.getMaxDelay();
+        }
+        var nanos = Math.max(settings.getMinDelay().toNanos(), Math.min(settings.getMaxDelay().toNanos(), percentile));
+        return Duration.ofNanos(nanos);
+    }
+}
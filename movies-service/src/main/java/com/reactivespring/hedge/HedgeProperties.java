@@ -0,0 +1,31 @@
+package com.reactivespring.hedge;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// request hedging per downstream service, only used for idempotent GETs
+@Data
+@ConfigurationProperties(prefix = "rest-client.hedge")
+public class HedgeProperties {
+
+    private Policy movieInfo = new Policy();
+
+    private Policy reviews = new Policy();
+
+    @Data
+    public static class Policy {
+        private boolean enabled = false;
+        // the second request is sent once the first one is slower than this percentile of recent calls
+        private double percentile = 0.95;
+        // bounds of the hedge delay, maxDelay is also used until enough calls have been seen
+        private Duration minDelay = Duration.ofMillis(20);
+        private Duration maxDelay = Duration.ofSeconds(1);
+        private int sampleSize = 1000;
+        private int minSamples = 100;
+        // hedges may add at most this fraction of the calls as extra load, e.g. 0.05 = 5%
+        private double maxHedgeRatio = 0.05;
+        private double maxHedgeBurst = 10;
+    }
+}
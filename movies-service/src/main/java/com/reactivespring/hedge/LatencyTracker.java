@@ -0,0 +1,55 @@
+package com.reactivespring.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies of the most recent calls in a ring buffer. The percentile is recomputed every
+ * {@code sampleSize / 10} recordings so that reading it stays cheap on the request path.
+ */
+public class LatencyTracker {
+
+    private final AtomicLongArray samples;
+
+    private final AtomicLong recorded = new AtomicLong();
+
+    private final int recomputeEvery;
+
+    private final double percentile;
+
+    private volatile long cachedNanos = -1;
+
+    public LatencyTracker(int sampleSize, double percentile) {
+        this.samples = new AtomicLongArray(sampleSize);
+        this.recomputeEvery = Math.max(1, sampleSize / 10);
+        this.percentile = percentile;
+    }
+
+    public void record(long nanos) {
+        var count = recorded.getAndIncrement();
+        samples.set((int) (count % samples.length()), nanos);
+        if ((count + 1) % recomputeEvery == 0) {
+            cachedNanos = compute(Math.min(count + 1, samples.length()));
+        }
+    }
+
+    public long count() {
+        return recorded.get();
+    }
+
+    // -1 until the first recomputation
+    public long percentileNanos() {
+        return cachedNanos;
+    }
+
+    private long compute(long size) {
+        var values = new long[(int) size];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = samples.get(i);
+        }
+        Arrays.sort(values);
+        var index = (int) Math.ceil(percentile * values.length) - 1;
+        return values[Math.max(0, Math.min(values.length - 1, index))];
+    }
+}
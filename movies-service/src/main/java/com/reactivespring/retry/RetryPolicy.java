@@ -0,0 +1,171 @@
+package com.reactivespring.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Retries of one downstream client: exponential backoff with full jitter, a retry budget shared by all
+ * calls of the client and a deadline taken from the subscriber context.
+ * A retry is only started if none of the three forbids it, otherwise the last failure is reported as exhausted.
+ * Every attempt is observed on its own ({@code http.client.attempt}), so a trace shows each retry and its backoff gap.
+ */
+public class RetryPolicy {
+
+    private static final String DEADLINE_KEY = RetryPolicy.class.getName() + ".deadline";
+
+    private final String name;
+
+    private final RetryProperties.Policy settings;
+
+    private final TokenBucket budget;
+
+    private final ObservationRegistry observationRegistry;
+
+    private final Counter attempts;
+
+    private final Counter successesAfterRetry;
+
+    private final Counter exhaustedMaxRetries;
+
+    private final Counter exhaustedBudget;
+
+    private final Counter exhaustedDeadline;
+
+    public RetryPolicy(String name, RetryProperties.Policy settings, MeterRegistry meterRegistry,
+                       ObservationRegistry observationRegistry) {
+        this.name = name;
+        this.settings = settings;
+        this.budget = new TokenBucket(settings.getBudgetMaxTokens(), settings.getBudgetRatio());
+        this.observationRegistry = observationRegistry;
+        this.attempts = meterRegistry.counter("http.client.retry.attempts", "client", name);
+        this.successesAfterRetry = meterRegistry.counter("http.client.retry.success.after.retry", "client", name);
+        this.exhaustedMaxRetries = meterRegistry.counter("http.client.retry.exhausted", "client", name, "reason", "maxRetries");
+        this.exhaustedBudget = meterRegistry.counter("http.client.retry.exhausted", "client", name, "reason", "budget");
+        this.exhaustedDeadline = meterRegistry.counter("http.client.retry.exhausted", "client", name, "reason", "deadline");
+        Gauge.builder("http.client.retry.budget.tokens", budget, TokenBucket::available)
+                .tag("client", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Context entry for callers with a timeout, retries that could not finish before it are not started.
+     * Use with {@code contextWrite}, the deadline is computed on subscription. It is kept in {@link System#nanoTime()},
+     * which is what the retries compare it with, so wall clock adjustments do not move it.
+     */
+    public static Function<Context, Context> deadlineIn(Duration timeout) {
+        return context -> context.put(DEADLINE_KEY, System.nanoTime() + timeout.toNanos());
+    }
+
+    public <T> Mono<T> apply(Mono<T> source, Class<? extends Throwable> retryOn, Function<Retry.RetrySignal, ? extends Throwable> exhausted) {
+        return Mono.defer(() -> {
+            var retried = new AtomicBoolean();
+            var attempt = new AtomicInteger();
+            budget.deposit();
+            return Mono.defer(() -> observed(source, attempt.incrementAndGet()))
+                    .retryWhen(retry(retryOn, exhausted, retried))
+                    .doOnSuccess(value -> countSuccess(retried));
+        });
+    }
+
+    public <T> Flux<T> apply(Flux<T> source, Class<? extends Throwable> retryOn, Function<Retry.RetrySignal, ? extends Throwable> exhausted) {
+        return Flux.defer(() -> {
+            var retried = new AtomicBoolean();
+            var attempt = new AtomicInteger();
+            budget.deposit();
+            return Flux.defer(() -> observed(source, attempt.incrementAndGet()))
+                    .retryWhen(retry(retryOn, exhausted, retried))
+                    .doOnComplete(() -> countSuccess(retried));
+        });
+    }
+
+    // the attempt observation is put into the subscriber context, the WebClient request span becomes its child
+    private <T> Mono<T> observed(Mono<T> source, int attempt) {
+        if (observationRegistry.isNoop()) {
+            return source;
+        }
+        return Mono.deferContextual(context -> {
+            var observation = attemptObservation(attempt, context);
+            return source.doOnError(observation::error)
+                    .doFinally(signal -> observation.stop())
+                    .contextWrite(Context.of(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    private <T> Flux<T> observed(Flux<T> source, int attempt) {
+        if (observationRegistry.isNoop()) {
+            return source;
+        }
+        return Flux.deferContextual(context -> {
+            var observation = attemptObservation(attempt, context);
+            return source.doOnError(observation::error)
+                    .doFinally(signal -> observation.stop())
+                    .contextWrite(Context.of(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    private Observation attemptObservation(int attempt, ContextView context) {
+        return Observation.createNotStarted("http.client.attempt", observationRegistry)
+                .parentObservation(context.getOrDefault(ObservationThreadLocalAccessor.KEY, null))
+                .lowCardinalityKeyValue("client", name)
+                .lowCardinalityKeyValue("attempt", String.valueOf(attempt))
+                .start();
+    }
+
+    private void countSuccess(AtomicBoolean retried) {
+        if (retried.get()) {
+            successesAfterRetry.increment();
+        }
+    }
+
+    private Retry retry(Class<? extends Throwable> retryOn, Function<Retry.RetrySignal, ? extends Throwable> exhausted, AtomicBoolean retried) {
+        return Retry.from(signals -> Flux.deferContextual(context -> signals.concatMap(signal -> {
+            if (!retryOn.isInstance(signal.failure())) {
+                return Mono.error(signal.failure());
+            }
+            if (signal.totalRetriesInARow() >= settings.getMaxRetries()) {
+                exhaustedMaxRetries.increment();
+                return Mono.error(exhausted.apply(signal));
+            }
+            var delay = backoff(signal.totalRetriesInARow());
+            var deadline = context.<Long>getOrEmpty(DEADLINE_KEY);
+            if (deadline.isPresent() && System.nanoTime() + delay.toNanos() - deadline.get() >= 0) {
+                exhaustedDeadline.increment();
+                return Mono.error(exhausted.apply(signal));
+            }
+            if (!budget.tryAcquire()) {
+                exhaustedBudget.increment();
+                return Mono.error(exhausted.apply(signal));
+            }
+            attempts.increment();
+            retried.set(true);
+            return Mono.delay(delay);
+        })));
+    }
+
+    // full jitter: uniformly distributed between 0 and the exponential backoff of the attempt
+    Duration backoff(long retry) {
+        var min = settings.getMinBackoff().toMillis();
+        var max = settings.getMaxBackoff().toMillis();
+        var ceiling = retry >= 31 ? max : Math.min(max, min << retry);
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    public double availableBudget() {
+        return budget.available();
+    }
+}
@@ -0,0 +1,28 @@
+package com.reactivespring.retry;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// retry policy per downstream service
+@Data
+@ConfigurationProperties(prefix = "rest-client.retry")
+public class RetryProperties {
+
+    private Policy movieInfo = new Policy();
+
+    private Policy reviews = new Policy();
+
+    @Data
+    public static class Policy {
+        private int maxRetries = 3;
+        // the n-th retry waits a random time between 0 and min(maxBackoff, minBackoff * 2^n)
+        private Duration minBackoff = Duration.ofSeconds(1);
+        private Duration maxBackoff = Duration.ofSeconds(5);
+        // retries may add at most this fraction of the calls as extra load, e.g. 0.1 = 10%
+        private double budgetRatio = 0.1;
+        // retries possible in a burst, e.g. right after startup
+        private double budgetMaxTokens = 10;
+    }
+}
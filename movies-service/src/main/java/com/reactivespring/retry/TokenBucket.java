@@ -0,0 +1,46 @@
+package com.reactivespring.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket that is refilled by traffic instead of time: every call deposits a fraction
+ * of a token, every extra request (e.g. a retry) has to take a whole one.
+ * Starts full so that a cold client can still retry.
+ */
+public class TokenBucket {
+
+    // tokens are kept in thousandths to allow fractional deposits
+    private static final long SCALE = 1000;
+
+    private final long capacity;
+
+    private final long deposit;
+
+    private final AtomicLong tokens;
+
+    public TokenBucket(double maxTokens, double depositPerCall) {
+        this.capacity = Math.round(maxTokens * SCALE);
+        this.deposit = Math.round(depositPerCall * SCALE);
+        this.tokens = new AtomicLong(capacity);
+    }
+
+    public void deposit() {
+        tokens.accumulateAndGet(deposit, (current, added) -> Math.min(capacity, current + added));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            var current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    public double available() {
+        return (double) tokens.get() / SCALE;
+    }
+}
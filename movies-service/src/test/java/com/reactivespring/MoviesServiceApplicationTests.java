@@ -3,7 +3,7 @@ package com.reactivespring;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "cache.movieInfo.invalidation.enabled=false")
 class MoviesServiceApplicationTests {
 
 	@Test
@@ -0,0 +1,81 @@
+package com.reactivespring;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.domain.Movie;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@AutoConfigureObservability
+@TestPropertySource(
+        properties = {
+                "restClient.movieInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/review",
+                "cache.movieInfo.enabled=false",
+                "cache.movieInfo.invalidation.enabled=false"
+        }
+)
+public class MetricsIntgTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.reset();
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/1"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+    }
+
+    @DisplayName("Prometheus scrape contains route histograms, in-flight requests and downstream timings per target")
+    @Test
+    void prometheusScrape() throws InterruptedException {
+        //given
+        webTestClient.get().uri("/v1/movies/{id}", "1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class);
+        //when the server timer is stopped after the response has been written, so it may show up a moment later
+        var scrape = scrape();
+        for (int i = 0; i < 20 && !scrape.contains("uri=\"/v1/movies/{id}\""); i++) {
+            Thread.sleep(100);
+            scrape = scrape();
+        }
+        //then
+        Assertions.assertTrue(scrape.lines().anyMatch(line -> line.startsWith("http_server_requests_seconds_bucket")
+                && line.contains("application=\"movies-service\"") && line.contains("uri=\"/v1/movies/{id}\"")), "route histogram should be exported");
+        Assertions.assertTrue(scrape.contains("http_server_requests_active_seconds"), "in-flight requests should be exported");
+        Assertions.assertTrue(scrape.lines().anyMatch(line -> line.startsWith("http_client_requests_seconds_bucket")
+                && line.contains("target=\"movieInfo\"")), "movie info timings should be tagged by target");
+        Assertions.assertTrue(scrape.lines().anyMatch(line -> line.startsWith("http_client_requests_seconds_bucket")
+                && line.contains("target=\"reviews\"")), "reviews timings should be tagged by target");
+    }
+
+    private String scrape() {
+        var scrape = webTestClient.get().uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        Assertions.assertNotNull(scrape);
+        return scrape;
+    }
+}
@@ -1,7 +1,11 @@
 package com.reactivespring;
 
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.cache.MovieInfoCache;
 import com.reactivespring.domain.Movie;
+import com.reactivespring.domain.MovieSummary;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,12 +14,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
+import java.util.stream.IntStream;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
@@ -25,7 +35,8 @@ import java.util.Objects;
 @TestPropertySource(
         properties = {
                 "restClient.movieInfoUrl=http://localhost:8084/v1/movieinfos",
-                "restClient.reviewsUrl=http://localhost:8084/v1/review"
+                "restClient.reviewsUrl=http://localhost:8084/v1/review",
+                "cache.movieInfo.invalidation.enabled=false"
         }
 )
 public class MoviesControllerIntgTest {
@@ -33,13 +44,21 @@ public class MoviesControllerIntgTest {
     @Autowired
     WebTestClient webTestClient;
 
+    @Autowired
+    MovieInfoCache movieInfoCache;
+
+    @Autowired
+    CircuitBreakerRegistry circuitBreakerRegistry;
+
     private final String MOVIES_URL = "/v1/movies";
 
     @BeforeEach
     void setUp() {
         WireMock.reset();//wegen WireMock.verify
+        movieInfoCache.invalidateAll();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
         webTestClient = webTestClient.mutate()
-                .responseTimeout(Duration.ofSeconds(10)) // Timeout auf 10 Sekunden setzen
+                .responseTimeout(Duration.ofSeconds(15)) // Timeout auf 15 Sekunden setzen (3 Retries mit Jitter)
                 .build();
     }
 
@@ -67,6 +86,72 @@ public class MoviesControllerIntgTest {
 
         Assertions.assertTrue(Objects.requireNonNull(movie).getReviewList().size()==2, "Wire Mock should return two reviews");
     }
+    @DisplayName("WireMock Retriev Movie by ID calls both services concurrently")
+    @Test
+    void retrieveMovieById_callsDownstreamsConcurrently() {
+        //given
+        var movieId = "abc";
+        var delayMs = 1500;
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(delayMs)));
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(delayMs)));
+
+        //when
+        var start = System.nanoTime();
+        var movie = webTestClient.get()
+                .uri(MOVIES_URL+"/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .returnResult().getResponseBody();
+        var elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        //then
+        Assertions.assertEquals(2, Objects.requireNonNull(movie).getReviewList().size(), "Wire Mock should return two reviews");
+        Assertions.assertTrue(elapsedMs < 2L * delayMs, "Latency should be bounded by the slower call, was " + elapsedMs + "ms");
+
+        // the second request must have reached WireMock while the first one was still delayed
+        var requestTimes = WireMock.getAllServeEvents().stream()
+                .map(serveEvent -> serveEvent.getRequest().getLoggedDate().getTime())
+                .toList();
+        Assertions.assertEquals(2, requestTimes.size(), "Both downstream services should be called once");
+        Assertions.assertTrue(Math.abs(requestTimes.get(0) - requestTimes.get(1)) < delayMs, "Downstream calls should overlap");
+    }
+
+    @DisplayName("WireMock Retriev Movie by ID twice uses the MovieInfo cache")
+    @Test
+    void retrieveMovieById_servedFromCache() {
+        //given
+        var movieId = "abc";
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        //when
+        for (int i = 0; i < 2; i++) {
+            webTestClient.get()
+                    .uri(MOVIES_URL+"/{id}", movieId)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .jsonPath("$.movieInfo.name").isEqualTo("Batman Begins");
+        }
+
+        //then
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlEqualTo("/v1/movieinfos/" + movieId)));
+        WireMock.verify(2, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v1/review")));
+    }
+
     @DisplayName("WireMock Retriev Movie by ID 404")
     @Test
     void retrieveMovieById_whenMovieNotFound_404() {
@@ -177,4 +262,164 @@ public class MoviesControllerIntgTest {
                 });
         WireMock.verify(4, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v1/review")));
     }
+
+    @DisplayName("WireMock Retriev Movies by IDs in request order with one call per downstream")
+    @Test
+    void retrieveMoviesByIds() {
+        //given
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/movieinfos"))
+                // misses are loaded as a set, their order is not defined
+                .withQueryParam("ids", WireMock.matching("[123],[123],[123]"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfos.json")));
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .withQueryParam("movieInfoIds", WireMock.equalTo("2,1,3"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        var movies = webTestClient.get()
+                .uri(MOVIES_URL + "?ids=2,1,3,2")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Movie.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        Assertions.assertNotNull(movies);
+        Assertions.assertEquals(List.of("2", "1"), movies.stream().map(movie -> movie.getMovieInfo().getMovieInfoId()).toList(), "Movies in request order, unknown id skipped");
+        Assertions.assertEquals(0, movies.get(0).getReviewList().size());
+        Assertions.assertEquals(2, movies.get(1).getReviewList().size());
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v1/movieinfos")));
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v1/review")));
+
+        // the second batch is served from the cache, only the missing id is fetched
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/movieinfos"))
+                .withQueryParam("ids", WireMock.equalTo("3"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json").withBody("[]")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .withQueryParam("movieInfoIds", WireMock.equalTo("1,3"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json").withBody("[]")));
+
+        webTestClient.get()
+                .uri(MOVIES_URL + "?ids=1,3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Movie.class)
+                .hasSize(1);
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v1/movieinfos")).withQueryParam("ids", WireMock.equalTo("3")));
+    }
+
+    @DisplayName("WireMock Retriev Movies by IDs asks ReviewsService only for the numeric ids")
+    @Test
+    void retrieveMoviesByIds_nonNumericId() {
+        //given
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/movieinfos"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfos.json")));
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .withQueryParam("movieInfoIds", WireMock.equalTo("1,2"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        //when
+        var movies = webTestClient.get()
+                .uri(MOVIES_URL + "?ids=abc,1,2")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Movie.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        //then
+        Assertions.assertNotNull(movies);
+        Assertions.assertEquals(List.of("1", "2"), movies.stream().map(movie -> movie.getMovieInfo().getMovieInfoId()).toList(), "Unknown id skipped");
+        Assertions.assertEquals(2, movies.get(0).getReviewList().size());
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v1/review")).withQueryParam("movieInfoIds", WireMock.equalTo("1,2")));
+    }
+
+    @DisplayName("WireMock Retriev Movies by IDs rejects too many ids")
+    @Test
+    void retrieveMoviesByIds_tooManyIds() {
+        var ids = String.join(",", IntStream.rangeClosed(1, 101).mapToObj(String::valueOf).toList());
+
+        webTestClient.get()
+                .uri(MOVIES_URL + "?ids=" + ids)
+                .exchange()
+                .expectStatus().isBadRequest();
+        WireMock.verify(0, WireMock.anyRequestedFor(WireMock.anyUrl()));
+    }
+
+    @DisplayName("WireMock Retriev Movie summary with stats and top reviews")
+    @Test
+    void retrieveMovieSummaryById() {
+        //given
+        var movieId = "1";
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/review/stats/" + movieId))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBody("{\"movieInfoId\":1,\"count\":2,\"sum\":17.0,\"average\":8.5,\"histogram\":{\"8\":1,\"9\":1}}")));
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .withQueryParam("movieInfoId", WireMock.equalTo(movieId))
+                .withQueryParam("top", WireMock.equalTo("2"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        var summary = webTestClient.get()
+                .uri(MOVIES_URL + "/{id}?view=summary&top=2", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MovieSummary.class)
+                .returnResult().getResponseBody();
+
+        Assertions.assertNotNull(summary);
+        Assertions.assertEquals("Batman Begins", summary.getMovieInfo().getName());
+        Assertions.assertEquals(8.5, summary.getReviewStats().getAverage());
+        Assertions.assertEquals(2, summary.getTopReviews().size());
+    }
+
+    @DisplayName("A burst of concurrent requests for the same movie calls each downstream once")
+    @Test
+    void retrieveMovieById_concurrentRequestsAreCoalesced() {
+        //given
+        var movieId = "trending";
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/" + movieId))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(2000)));
+
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(2000)));
+
+        //when the requests arrive while the first downstream calls are in flight, fewer than the connections of the test client
+        var reviewCounts = Flux.range(0, 10)
+                .flatMap(i -> Mono.fromCallable(() -> webTestClient.get()
+                        .uri(MOVIES_URL + "/{id}", movieId)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectBody(Movie.class)
+                        .returnResult().getResponseBody())
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .map(movie -> movie.getReviewList().size())
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        //then
+        Assertions.assertEquals(10, reviewCounts.size());
+        Assertions.assertTrue(reviewCounts.stream().allMatch(count -> count == 2));
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlEqualTo("/v1/movieinfos/" + movieId)));
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v1/review")));
+    }
 }
@@ -0,0 +1,155 @@
+package com.reactivespring;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.reactivespring.domain.Movie;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.movieInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/review",
+                "restClient.retry.movieInfo.maxRetries=0",
+                "restClient.retry.reviews.maxRetries=0",
+                "cache.movieInfo.enabled=false",
+                "cache.movieInfo.invalidation.enabled=false",
+                "resilience4j.circuitbreaker.configs.default.slidingWindowSize=4",
+                "resilience4j.circuitbreaker.configs.default.minimumNumberOfCalls=4",
+                "resilience4j.circuitbreaker.configs.default.waitDurationInOpenState=500ms",
+                "resilience4j.circuitbreaker.configs.default.permittedNumberOfCallsInHalfOpenState=1",
+                "resilience4j.bulkhead.instances.reviews.maxConcurrentCalls=1"
+        }
+)
+public class ResilienceIntgTest {
+
+    private static final String MOVIES_URL = "/v1/movies";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.reset();
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(CircuitBreaker::reset);
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/1"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+    }
+
+    @DisplayName("Open reviews circuit degrades to a movie without reviews and recovers via half-open")
+    @Test
+    void reviewsCircuitOpen_degradesAndRecovers() throws InterruptedException {
+        //given
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+        // failures are reported until the window is full
+        for (int i = 0; i < 4; i++) {
+            webTestClient.get().uri(MOVIES_URL + "/{id}", "1")
+                    .exchange()
+                    .expectStatus().is5xxServerError();
+        }
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.circuitBreaker("reviews").getState());
+
+        //when the circuit is open ReviewsService is not called at all
+        var movie = retrieveMovie();
+        Assertions.assertEquals(0, movie.getReviewList().size());
+        WireMock.verify(4, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v1/review")));
+
+        //then a successful probe after the wait duration closes the circuit again
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+        Thread.sleep(700);
+        Assertions.assertEquals(2, retrieveMovie().getReviewList().size());
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.circuitBreaker("reviews").getState());
+    }
+
+    @DisplayName("Open MovieInfo circuit answers 503 without calling MoviesInfoService")
+    @Test
+    void movieInfoCircuitOpen_serviceUnavailable() {
+        //given
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/2"))
+                .willReturn(WireMock.aResponse().withStatus(500).withBody("MovieInfo Service Unavailable")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+        for (int i = 0; i < 4; i++) {
+            webTestClient.get().uri(MOVIES_URL + "/{id}", "2")
+                    .exchange()
+                    .expectStatus().is5xxServerError();
+        }
+
+        //when
+        webTestClient.get().uri(MOVIES_URL + "/{id}", "2")
+                .exchange()
+                .expectStatus().isEqualTo(503);
+
+        //then
+        WireMock.verify(4, WireMock.getRequestedFor(WireMock.urlEqualTo("/v1/movieinfos/2")));
+    }
+
+    @DisplayName("Calls beyond the reviews bulkhead degrade instead of queueing")
+    @Test
+    void reviewsBulkheadFull_degrades() {
+        //given
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(1000)));
+
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/2"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        //when two requests for different movies need ReviewsService at the same time
+        var reviewCounts = Flux.range(1, 2)
+                .flatMap(i -> Mono.fromCallable(() -> retrieveMovie(String.valueOf(i))).subscribeOn(Schedulers.boundedElastic()))
+                .map(movie -> movie.getReviewList().size())
+                .collectSortedList()
+                .block(Duration.ofSeconds(5));
+
+        //then only one of them got a permit
+        Assertions.assertEquals(List.of(0, 2), reviewCounts);
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/v1/review")));
+    }
+
+    private Movie retrieveMovie() {
+        return retrieveMovie("1");
+    }
+
+    private Movie retrieveMovie(String movieId) {
+        var movie = webTestClient.get().uri(MOVIES_URL + "/{id}", movieId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class)
+                .returnResult().getResponseBody();
+        Assertions.assertNotNull(movie);
+        return movie;
+    }
+}
@@ -0,0 +1,134 @@
+package com.reactivespring;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.reactivespring.domain.Movie;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@AutoConfigureObservability
+@TestPropertySource(
+        properties = {
+                "restClient.movieInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/review",
+                "restClient.retry.movieInfo.minBackoff=10ms",
+                "restClient.retry.movieInfo.maxBackoff=20ms",
+                "cache.movieInfo.enabled=false",
+                "cache.movieInfo.invalidation.enabled=false",
+                "management.tracing.sampling.probability=1.0"
+        }
+)
+public class TracingIntgTest {
+
+    private static final AttributeKey<String> CLIENT = AttributeKey.stringKey("client");
+
+    private static final AttributeKey<String> ATTEMPT = AttributeKey.stringKey("attempt");
+
+    @TestConfiguration
+    static class InMemoryExporterConfig {
+
+        @Bean
+        InMemorySpanExporter inMemorySpanExporter() {
+            return InMemorySpanExporter.create();
+        }
+    }
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    InMemorySpanExporter spanExporter;
+
+    @Autowired
+    SdkTracerProvider tracerProvider;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.reset();
+        spanExporter.reset();
+    }
+
+    @DisplayName("Trace context reaches both downstreams and every retry attempt gets its own span")
+    @Test
+    void traceAcrossDownstreamsAndRetries() {
+        //given the first movie info call fails, the retry succeeds
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/1"))
+                .inScenario("retry").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(WireMock.serverError().withBody("MovieInfo Service Unavailable"))
+                .willSetStateTo("recovered"));
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/1"))
+                .inScenario("retry").whenScenarioStateIs("recovered")
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        //when
+        webTestClient.get().uri("/v1/movies/{id}", "1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Movie.class);
+        tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+
+        //then all spans belong to one trace
+        var spans = spanExporter.getFinishedSpanItems();
+        var traceIds = spans.stream().map(SpanData::getTraceId).collect(Collectors.toSet());
+        Assertions.assertEquals(1, traceIds.size(), "all spans should belong to one trace: " + spans);
+        var traceId = traceIds.iterator().next();
+
+        // the downstreams received the trace context
+        var downstreamRequests = WireMock.findAll(WireMock.getRequestedFor(WireMock.anyUrl()));
+        Assertions.assertEquals(3, downstreamRequests.size(), "two movie info attempts and one reviews call");
+        downstreamRequests.forEach(request -> Assertions.assertTrue(traceparent(request).contains(traceId),
+                "traceparent should carry the trace id: " + request.getUrl()));
+
+        // one attempt span per movie info call, each one is the parent of its request span
+        var attempts = spans.stream()
+                .filter(span -> "movieInfo".equals(span.getAttributes().get(CLIENT)) && span.getAttributes().get(ATTEMPT) != null)
+                .toList();
+        Assertions.assertEquals(Set.of("1", "2"), attempts.stream().map(span -> span.getAttributes().get(ATTEMPT)).collect(Collectors.toSet()),
+                "both attempts should be traced: " + spans);
+        var attemptSpanIds = attempts.stream().map(SpanData::getSpanId).collect(Collectors.toSet());
+        var movieInfoRequests = downstreamRequests.stream()
+                .filter(request -> request.getUrl().startsWith("/v1/movieinfos"))
+                .map(request -> traceparent(request).split("-")[2])
+                .toList();
+        var parentsOfRequestSpans = spans.stream()
+                .filter(span -> movieInfoRequests.contains(span.getSpanId()))
+                .map(SpanData::getParentSpanId)
+                .collect(Collectors.toSet());
+        Assertions.assertEquals(attemptSpanIds, parentsOfRequestSpans, "request spans should be children of the attempt spans");
+    }
+
+    private static String traceparent(LoggedRequest request) {
+        var header = request.getHeader("traceparent");
+        Assertions.assertNotNull(header, "traceparent header should be sent to " + request.getUrl());
+        return header;
+    }
+}
@@ -0,0 +1,97 @@
+package com.reactivespring;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.client.ReviewsRestClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.movieInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/review",
+                "restClient.connection.movieInfo.responseTimeout=300ms",
+                "cache.movieInfo.invalidation.enabled=false"
+        }
+)
+public class WebClientConfigIntgTest {
+
+    @Autowired
+    MoviesInfoRestClient moviesInfoRestClient;
+
+    @Autowired
+    ReviewsRestClient reviewsRestClient;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        WireMock.reset();
+    }
+
+    @DisplayName("A hanging MovieInfo response fails after the configured response timeout")
+    @Test
+    void retrieveMovieInfo_responseTimeout() {
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/abc"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(3000)));
+
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfo("abc"))
+                .expectError()
+                .verify(Duration.ofMillis(2000));
+    }
+
+    @DisplayName("The streaming MovieInfo call is not cut off by the response timeout")
+    @Test
+    void retrieveMovieInfoStream_noResponseTimeout() {
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/x-ndjson")
+                        .withBody("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n")
+                        .withFixedDelay(800)));
+
+        StepVerifier.create(moviesInfoRestClient.retrieveMovieInfoStream())
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @DisplayName("Each downstream and the MovieInfo streams get their own pool with exported metrics")
+    @Test
+    void connectionPools_exportMetrics() {
+        WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/v1/review"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/1"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/v1/movieinfos/stream"))
+                .willReturn(WireMock.aResponse().withHeader("Content-Type", "application/x-ndjson")
+                        .withBody("{\"movieInfoId\":\"1\",\"name\":\"Batman Begins\",\"year\":2005}\n")));
+
+        moviesInfoRestClient.retrieveMovieInfo("1").block();
+        reviewsRestClient.retrieveReviews("1").collectList().block();
+        moviesInfoRestClient.retrieveMovieInfoStream().collectList().block();
+
+        for (var pool : new String[]{"movieInfo", "movieInfoStream", "reviews"}) {
+            for (var gauge : new String[]{"active.connections", "idle.connections", "pending.connections", "total.connections"}) {
+                Assertions.assertNotNull(meterRegistry.find("reactor.netty.connection.provider." + gauge).tag("name", pool).gauge(),
+                        gauge + " missing for pool " + pool);
+            }
+        }
+    }
+}
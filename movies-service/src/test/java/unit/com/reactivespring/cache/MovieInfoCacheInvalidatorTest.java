@@ -0,0 +1,112 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+
+class MovieInfoCacheInvalidatorTest {
+
+    private final MoviesInfoRestClient moviesInfoRestClient = Mockito.mock(MoviesInfoRestClient.class);
+
+    private final MovieInfoCache movieInfoCache = Mockito.mock(MovieInfoCache.class);
+
+    private MovieInfoCacheInvalidator invalidator;
+
+    private final MovieInfo movieInfo = new MovieInfo("abc", "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+    @BeforeEach
+    void setUp() {
+        invalidator = new MovieInfoCacheInvalidator(moviesInfoRestClient, movieInfoCache);
+        ReflectionTestUtils.setField(invalidator, "enabled", true);
+        ReflectionTestUtils.setField(invalidator, "minBackoff", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(invalidator, "maxBackoff", Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        invalidator.stop();
+    }
+
+    @Test
+    void appliesUpdatesAndDeletes() {
+        Mockito.when(moviesInfoRestClient.retrieveMovieInfoChanges(0L)).thenReturn(Flux.concat(
+                Flux.just(
+                        new MovieInfoEvent(0L, MovieInfoEvent.Type.CREATED, "abc", movieInfo),
+                        new MovieInfoEvent(1L, MovieInfoEvent.Type.UPDATED, "abc", movieInfo),
+                        new MovieInfoEvent(2L, MovieInfoEvent.Type.DELETED, "abc", null)),
+                Flux.never()));
+
+        invalidator.start();
+
+        Mockito.verify(movieInfoCache, Mockito.timeout(1000)).invalidate("abc");
+        Mockito.verify(movieInfoCache).put(movieInfo);
+        // only the initial connect drops the cache
+        Mockito.verify(movieInfoCache, Mockito.times(1)).invalidateAll();
+    }
+
+    @Test
+    void offsetGap_dropsCache() {
+        invalidator.apply(new MovieInfoEvent(0L, MovieInfoEvent.Type.UPDATED, "abc", movieInfo));
+        Mockito.verify(movieInfoCache, Mockito.never()).invalidateAll();
+
+        invalidator.apply(new MovieInfoEvent(5L, MovieInfoEvent.Type.UPDATED, "abc", movieInfo));
+        Mockito.verify(movieInfoCache, Mockito.times(1)).invalidateAll();
+    }
+
+    @Test
+    void reconnect_resumesAfterLastOffset_andDropsCache() {
+        Mockito.when(moviesInfoRestClient.retrieveMovieInfoChanges(0L)).thenReturn(Flux.concat(
+                Flux.just(new MovieInfoEvent(0L, MovieInfoEvent.Type.UPDATED, "abc", movieInfo)),
+                Flux.error(new RuntimeException("connection reset"))));
+        Mockito.when(moviesInfoRestClient.retrieveMovieInfoChanges(1L)).thenReturn(Flux.never());
+
+        invalidator.start();
+
+        Mockito.verify(moviesInfoRestClient, Mockito.timeout(2000)).retrieveMovieInfoChanges(1L);
+        Mockito.verify(movieInfoCache, Mockito.times(2)).invalidateAll();
+        Mockito.verify(moviesInfoRestClient, Mockito.times(2)).retrieveMovieInfoChanges(anyLong());
+    }
+
+    @Test
+    void reconnect_afterRecoveredOutage_startsOverAtMinBackoff() {
+        ReflectionTestUtils.setField(invalidator, "minBackoff", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(invalidator, "maxBackoff", Duration.ofSeconds(1));
+        var failedAt = new AtomicLong();
+        var reconnectedAt = new AtomicLong();
+        var outage = Flux.<MovieInfoEvent>error(new RuntimeException("connection refused"));
+        // six failed attempts grow the backoff to 640ms, then the stream recovers and drops again
+        var recovered = Flux.concat(
+                Flux.just(new MovieInfoEvent(0L, MovieInfoEvent.Type.UPDATED, "abc", movieInfo)),
+                Flux.defer(() -> {
+                    failedAt.set(System.nanoTime());
+                    return Flux.error(new RuntimeException("connection reset"));
+                }));
+        Mockito.when(moviesInfoRestClient.retrieveMovieInfoChanges(0L))
+                .thenReturn(outage, outage, outage, outage, outage, outage, recovered);
+        Mockito.when(moviesInfoRestClient.retrieveMovieInfoChanges(1L)).thenAnswer(invocation -> {
+            reconnectedAt.set(System.nanoTime());
+            return Flux.never();
+        });
+
+        invalidator.start();
+
+        Mockito.verify(moviesInfoRestClient, Mockito.timeout(3000)).retrieveMovieInfoChanges(1L);
+        var reconnectDelay = Duration.ofNanos(reconnectedAt.get() - failedAt.get());
+        Assertions.assertTrue(reconnectDelay.compareTo(Duration.ofMillis(200)) < 0,
+                "reconnect after a recovered stream should not wait the grown backoff, waited " + reconnectDelay);
+    }
+}
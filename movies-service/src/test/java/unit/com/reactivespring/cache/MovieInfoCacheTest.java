@@ -0,0 +1,117 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class MovieInfoCacheTest {
+
+    private final MoviesInfoRestClient moviesInfoRestClient = Mockito.mock(MoviesInfoRestClient.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MovieInfoCache movieInfoCache;
+
+    private final MovieInfo movieInfo = new MovieInfo("abc", "Batman Begins", 2005, List.of("Christian Bale", "Michael Cane"), LocalDate.parse("2005-06-15"));
+
+    @BeforeEach
+    void setUp() {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<MeterRegistry> provider = Mockito.mock(ObjectProvider.class);
+        Mockito.when(provider.getIfAvailable(Mockito.any())).thenReturn(meterRegistry);
+        movieInfoCache = new MovieInfoCache(moviesInfoRestClient, true, 100, Duration.ofMinutes(5), provider);
+    }
+
+    @Test
+    @DisplayName("Concurrent misses for the same id share one downstream call")
+    void retrieveMovieInfo_collapsesConcurrentMisses() {
+        //given
+        var calls = new AtomicInteger();
+        var response = Sinks.<MovieInfo>one();
+        Mockito.when(moviesInfoRestClient.retrieveMovieInfo("abc"))
+                .thenAnswer(invocation -> {
+                    calls.incrementAndGet();
+                    return response.asMono();
+                });
+
+        //when
+        var results = Flux.range(0, 100)
+                .flatMap(i -> movieInfoCache.retrieveMovieInfo("abc"))
+                .collectList();
+
+        //then
+        StepVerifier.create(results)
+                .then(() -> response.tryEmitValue(movieInfo))
+                .assertNext(movieInfos -> Assertions.assertEquals(100, movieInfos.size(), "all callers should get the MovieInfo"))
+                .verifyComplete();
+        Assertions.assertEquals(1, calls.get(), "only one downstream call expected");
+        Assertions.assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "movieInfo").tag("result", "miss").functionCounter().count(), "one miss expected");
+    }
+
+    @Test
+    @DisplayName("Errors are not cached")
+    void retrieveMovieInfo_doesNotCacheErrors() {
+        //given
+        Mockito.when(moviesInfoRestClient.retrieveMovieInfo("abc"))
+                .thenReturn(Mono.error(new RuntimeException("boom")))
+                .thenReturn(Mono.just(movieInfo));
+
+        //then
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("abc"))
+                .expectError(RuntimeException.class)
+                .verify();
+        StepVerifier.create(movieInfoCache.retrieveMovieInfo("abc"))
+                .expectNext(movieInfo)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Invalidated entries are loaded again")
+    void invalidate_reloads() {
+        //given
+        Mockito.when(moviesInfoRestClient.retrieveMovieInfo("abc"))
+                .thenReturn(Mono.just(movieInfo));
+        movieInfoCache.retrieveMovieInfo("abc").block();
+
+        //when
+        movieInfoCache.invalidate("abc");
+        movieInfoCache.retrieveMovieInfo("abc").block();
+
+        //then
+        Mockito.verify(moviesInfoRestClient, Mockito.times(2)).retrieveMovieInfo("abc");
+    }
+
+    @Test
+    @DisplayName("Batch lookups load only the missing ids with one downstream call")
+    void retrieveMovieInfos_loadsMissingIdsInOneCall() {
+        //given
+        var other = new MovieInfo("def", "The Dark Knight", 2008, List.of("Christian Bale", "HeathLedger"), LocalDate.parse("2008-07-18"));
+        movieInfoCache.put(movieInfo);
+        Mockito.when(moviesInfoRestClient.retrieveMovieInfos(Mockito.anyCollection()))
+                .thenReturn(Flux.just(other));
+
+        //then
+        StepVerifier.create(movieInfoCache.retrieveMovieInfos(List.of("abc", "def", "unknown")))
+                .assertNext(movieInfos -> Assertions.assertEquals(Map.of("abc", movieInfo, "def", other), movieInfos))
+                .verifyComplete();
+        Mockito.verify(moviesInfoRestClient).retrieveMovieInfos(Mockito.argThat(ids -> ids.size() == 2 && ids.containsAll(List.of("def", "unknown"))));
+        Mockito.verify(moviesInfoRestClient, Mockito.never()).retrieveMovieInfo(Mockito.anyString());
+    }
+}
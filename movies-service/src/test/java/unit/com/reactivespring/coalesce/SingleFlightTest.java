@@ -0,0 +1,124 @@
+package com.reactivespring.coalesce;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>("test", true, meterRegistry);
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final AtomicInteger cancelled = new AtomicInteger();
+
+    private Mono<String> downstream(String key) {
+        return Mono.delay(Duration.ofMillis(200))
+                .map(tick -> key + "-" + calls.incrementAndGet())
+                .doOnCancel(cancelled::incrementAndGet);
+    }
+
+    @Test
+    @DisplayName("A burst of concurrent callers causes a single downstream call")
+    void burst() {
+        var results = Flux.range(0, 500)
+                .parallel(8)
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> singleFlight.execute("1", this::downstream))
+                .sequential()
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        Assertions.assertEquals(500, results.size());
+        Assertions.assertTrue(results.stream().allMatch("1-1"::equals));
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(499, meterRegistry.get("http.client.coalescing.joined").counter().count());
+        Assertions.assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    @DisplayName("The key is released on completion, nothing is cached")
+    void releasedOnCompletion() {
+        StepVerifier.create(singleFlight.execute("1", this::downstream)).expectNext("1-1").verifyComplete();
+        StepVerifier.create(singleFlight.execute("1", this::downstream)).expectNext("1-2").verifyComplete();
+
+        Assertions.assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    @DisplayName("Different keys are not coalesced")
+    void differentKeys() {
+        StepVerifier.create(Mono.zip(singleFlight.execute("1", this::downstream), singleFlight.execute("2", this::downstream)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        Assertions.assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("A cancelling caller does not cancel the call of the others")
+    void cancellation() {
+        var first = singleFlight.execute("1", this::downstream).subscribe();
+        var second = singleFlight.execute("1", this::downstream);
+
+        StepVerifier.create(second)
+                .then(first::dispose)
+                .expectNext("1-1")
+                .verifyComplete();
+
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(0, cancelled.get());
+    }
+
+    @Test
+    @DisplayName("The call is cancelled and the key released once every caller is gone")
+    void allCancelled() {
+        var first = singleFlight.execute("1", this::downstream).subscribe();
+        var second = singleFlight.execute("1", this::downstream).subscribe();
+
+        first.dispose();
+        second.dispose();
+
+        Assertions.assertEquals(1, cancelled.get());
+        Assertions.assertEquals(0, singleFlight.inFlight());
+        StepVerifier.create(singleFlight.execute("1", this::downstream)).expectNext("1-1").verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Errors are shared and not remembered")
+    void errors() {
+        var failures = new AtomicInteger();
+        var failing = singleFlight.execute("1", key -> Mono.delay(Duration.ofMillis(100))
+                .then(Mono.error(new IllegalStateException("boom " + failures.incrementAndGet()))));
+
+        StepVerifier.create(Mono.zip(failing, singleFlight.execute("1", this::downstream)))
+                .expectErrorMessage("boom 1")
+                .verify();
+
+        Assertions.assertEquals(1, failures.get());
+        Assertions.assertEquals(0, calls.get());
+        StepVerifier.create(singleFlight.execute("1", this::downstream)).expectNext("1-1").verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Disabled coalescing calls downstream for every caller")
+    void disabled() {
+        var passThrough = new SingleFlight<String, String>("disabled", false, meterRegistry);
+
+        StepVerifier.create(Mono.zip(passThrough.execute("1", this::downstream), passThrough.execute("1", this::downstream)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        Assertions.assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,170 @@
+package com.reactivespring.hedge;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class HedgePolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HedgePolicy hedgePolicy(boolean enabled, double maxHedgeRatio, double maxHedgeBurst) {
+        var settings = new HedgeProperties.Policy();
+        settings.setEnabled(enabled);
+        settings.setMinDelay(Duration.ofMillis(5));
+        settings.setMaxDelay(Duration.ofMillis(50));
+        settings.setSampleSize(100);
+        settings.setMinSamples(20);
+        settings.setMaxHedgeRatio(maxHedgeRatio);
+        settings.setMaxHedgeBurst(maxHedgeBurst);
+        return new HedgePolicy("test", settings, meterRegistry);
+    }
+
+    // the first subscription is slow, every further one answers quickly
+    private Mono<String> slowFirst(AtomicInteger calls, AtomicInteger cancelled) {
+        return Mono.defer(() -> {
+            var call = calls.incrementAndGet();
+            return call == 1
+                    ? Mono.delay(Duration.ofMillis(500)).thenReturn("slow").doOnCancel(cancelled::incrementAndGet)
+                    : Mono.delay(Duration.ofMillis(5)).thenReturn("fast");
+        });
+    }
+
+    private double counter(String name, String... tags) {
+        return meterRegistry.get(name).tags(tags).counter().count();
+    }
+
+    @Test
+    @DisplayName("A slow call is hedged, the hedge wins and the first request is cancelled")
+    void hedgeWins() {
+        var hedgePolicy = hedgePolicy(true, 0.1, 10);
+        var calls = new AtomicInteger();
+        var cancelled = new AtomicInteger();
+
+        StepVerifier.create(hedgePolicy.apply(slowFirst(calls, cancelled)))
+                .expectNext("fast")
+                .expectComplete()
+                .verify(Duration.ofMillis(400));
+
+        Assertions.assertEquals(2, calls.get());
+        Assertions.assertEquals(1, cancelled.get());
+        Assertions.assertEquals(1, counter("http.client.hedge.requests", "client", "test"));
+        Assertions.assertEquals(1, counter("http.client.hedge.wins", "client", "test"));
+    }
+
+    @Test
+    @DisplayName("Fast calls are not hedged")
+    void fastCall() {
+        var hedgePolicy = hedgePolicy(true, 0.1, 10);
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(hedgePolicy.apply(Mono.fromCallable(() -> calls.incrementAndGet() + "")))
+                .expectNext("1")
+                .verifyComplete();
+
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(0, counter("http.client.hedge.requests", "client", "test"));
+    }
+
+    @Test
+    @DisplayName("Without budget the slow call is awaited")
+    void budget() {
+        var hedgePolicy = hedgePolicy(true, 0, 0);
+        var calls = new AtomicInteger();
+        var cancelled = new AtomicInteger();
+
+        StepVerifier.create(hedgePolicy.apply(slowFirst(calls, cancelled)))
+                .expectNext("slow")
+                .verifyComplete();
+
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(0, counter("http.client.hedge.requests", "client", "test"));
+        Assertions.assertEquals(1, counter("http.client.hedge.skipped", "client", "test", "reason", "budget"));
+    }
+
+    @Test
+    @DisplayName("An error of the first request is not hidden by the hedge")
+    void error() {
+        var hedgePolicy = hedgePolicy(true, 0.1, 10);
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(hedgePolicy.apply(Mono.defer(() -> {
+                    calls.incrementAndGet();
+                    return Mono.error(new IllegalStateException("boom"));
+                })))
+                .expectErrorMessage("boom")
+                .verify();
+
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("A hedged Flux replays the complete answer of the winner")
+    void flux() {
+        var hedgePolicy = hedgePolicy(true, 0.1, 10);
+        var calls = new AtomicInteger();
+        var source = Flux.defer(() -> calls.incrementAndGet() == 1
+                ? Flux.just("a", "b").delayElements(Duration.ofMillis(300))
+                : Flux.just("c", "d"));
+
+        StepVerifier.create(hedgePolicy.apply(source))
+                .expectNext("c", "d")
+                .verifyComplete();
+
+        Assertions.assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("Disabled hedging leaves the call untouched")
+    void disabled() {
+        var hedgePolicy = hedgePolicy(false, 0.1, 10);
+        var calls = new AtomicInteger();
+        var cancelled = new AtomicInteger();
+
+        StepVerifier.create(hedgePolicy.apply(slowFirst(calls, cancelled)))
+                .expectNext("slow")
+                .verifyComplete();
+
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("The delay follows the latency percentile within its bounds")
+    void delay() {
+        var hedgePolicy = hedgePolicy(true, 0.1, 10);
+        Assertions.assertEquals(Duration.ofMillis(50), hedgePolicy.delay());
+
+        for (int i = 0; i < 30; i++) {
+            StepVerifier.create(hedgePolicy.apply(Mono.delay(Duration.ofMillis(10)).thenReturn("ok")))
+                    .expectNext("ok")
+                    .verifyComplete();
+        }
+
+        var delay = hedgePolicy.delay();
+        Assertions.assertTrue(delay.compareTo(Duration.ofMillis(10)) >= 0, delay::toString);
+        Assertions.assertTrue(delay.compareTo(Duration.ofMillis(50)) < 0, delay::toString);
+    }
+
+    @Test
+    @DisplayName("LatencyTracker reports the percentile of the recent samples")
+    void latencyTracker() {
+        var tracker = new LatencyTracker(100, 0.95);
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i);
+        }
+        Assertions.assertEquals(95, tracker.percentileNanos());
+
+        // the oldest samples are overwritten
+        for (int i = 0; i < 100; i++) {
+            tracker.record(1000);
+        }
+        Assertions.assertEquals(1000, tracker.percentileNanos());
+    }
+}
@@ -0,0 +1,132 @@
+package com.reactivespring.retry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RetryPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RetryPolicy retryPolicy(int maxRetries, double budgetRatio, double budgetMaxTokens, Duration minBackoff) {
+        var settings = new RetryProperties.Policy();
+        settings.setMaxRetries(maxRetries);
+        settings.setMinBackoff(minBackoff);
+        settings.setMaxBackoff(minBackoff.multipliedBy(4));
+        settings.setBudgetRatio(budgetRatio);
+        settings.setBudgetMaxTokens(budgetMaxTokens);
+        return new RetryPolicy("test", settings, meterRegistry, ObservationRegistry.NOOP);
+    }
+
+    private static IllegalStateException exhausted(Retry.RetrySignal retrySignal) {
+        return new IllegalStateException("Max retries reached: " + retrySignal.totalRetries());
+    }
+
+    private Mono<String> failingTimes(int failures, AtomicInteger calls) {
+        return Mono.defer(() -> calls.incrementAndGet() <= failures
+                ? Mono.error(new IllegalArgumentException("boom"))
+                : Mono.just("ok"));
+    }
+
+    private double counter(String name, String... tags) {
+        return meterRegistry.get(name).tags(tags).counter().count();
+    }
+
+    @Test
+    @DisplayName("Retries until success and counts the success after retry")
+    void retriesUntilSuccess() {
+        var retryPolicy = retryPolicy(3, 0.1, 10, Duration.ofMillis(5));
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(retryPolicy.apply(failingTimes(2, calls), IllegalArgumentException.class, RetryPolicyTest::exhausted))
+                .expectNext("ok")
+                .verifyComplete();
+
+        Assertions.assertEquals(3, calls.get());
+        Assertions.assertEquals(2, counter("http.client.retry.attempts", "client", "test"));
+        Assertions.assertEquals(1, counter("http.client.retry.success.after.retry", "client", "test"));
+    }
+
+    @Test
+    @DisplayName("Stops after maxRetries with the exhausted error")
+    void maxRetries() {
+        var retryPolicy = retryPolicy(3, 0.1, 10, Duration.ofMillis(5));
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(retryPolicy.apply(failingTimes(10, calls), IllegalArgumentException.class, RetryPolicyTest::exhausted))
+                .expectErrorMessage("Max retries reached: 3")
+                .verify();
+
+        Assertions.assertEquals(4, calls.get());
+        Assertions.assertEquals(1, counter("http.client.retry.exhausted", "client", "test", "reason", "maxRetries"));
+    }
+
+    @Test
+    @DisplayName("Other errors are not retried")
+    void filter() {
+        var retryPolicy = retryPolicy(3, 0.1, 10, Duration.ofMillis(5));
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(retryPolicy.apply(failingTimes(10, calls), IllegalStateException.class, RetryPolicyTest::exhausted))
+                .expectError(IllegalArgumentException.class)
+                .verify();
+
+        Assertions.assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("The budget caps retries to a fraction of the calls")
+    void budget() {
+        // two tokens to start with, every call adds a tenth
+        var retryPolicy = retryPolicy(1, 0.1, 2, Duration.ofMillis(1));
+        var calls = new AtomicInteger();
+
+        for (int i = 0; i < 20; i++) {
+            StepVerifier.create(retryPolicy.apply(failingTimes(Integer.MAX_VALUE, calls), IllegalArgumentException.class, RetryPolicyTest::exhausted))
+                    .expectError(IllegalStateException.class)
+                    .verify();
+        }
+
+        // the full bucket pays the first two retries, afterwards every tenth call earns one (the first deposit is capped)
+        Assertions.assertEquals(23, calls.get());
+        Assertions.assertEquals(3, counter("http.client.retry.attempts", "client", "test"));
+        Assertions.assertEquals(17, counter("http.client.retry.exhausted", "client", "test", "reason", "budget"));
+    }
+
+    @Test
+    @DisplayName("No retry is started that cannot finish before the deadline")
+    void deadline() {
+        var retryPolicy = retryPolicy(3, 0.1, 10, Duration.ofSeconds(1));
+        var calls = new AtomicInteger();
+
+        StepVerifier.create(retryPolicy.apply(failingTimes(10, calls), IllegalArgumentException.class, RetryPolicyTest::exhausted)
+                        .contextWrite(RetryPolicy.deadlineIn(Duration.ZERO)))
+                .expectError(IllegalStateException.class)
+                .verify(Duration.ofMillis(500));
+
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(1, counter("http.client.retry.exhausted", "client", "test", "reason", "deadline"));
+    }
+
+    @Test
+    @DisplayName("Backoff uses full jitter up to the capped exponential delay")
+    void backoff_fullJitter() {
+        var retryPolicy = retryPolicy(3, 0.1, 10, Duration.ofMillis(100));
+
+        for (int retry = 0; retry < 5; retry++) {
+            var ceiling = Math.min(400, 100L << retry);
+            for (int i = 0; i < 200; i++) {
+                var delay = retryPolicy.backoff(retry).toMillis();
+                Assertions.assertTrue(delay >= 0 && delay <= ceiling, "delay " + delay + " out of [0, " + ceiling + "]");
+            }
+        }
+    }
+}